@@ -18,7 +18,7 @@
 package de.fraunhofer.iosb.ilt.configurable;
 
 import com.google.gson.JsonElement;
-import de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper;
+import de.fraunhofer.iosb.ilt.configurable.annotations.EditorPrototypes;
 import de.fraunhofer.iosb.ilt.configurable.editor.EditorMap;
 
 /**
@@ -44,7 +44,7 @@ public abstract class AbstractConfigurable<C, D> implements Configurable<C, D> {
     @Override
     public EditorMap<?> getConfigEditor(C context, D edtCtx) {
         if (editor == null) {
-            editor = AnnotationHelper.generateEditorFromAnnotations(this, context, edtCtx).get();
+            editor = EditorPrototypes.getEditor(getClass(), context, edtCtx).get();
         }
         return editor;
     }
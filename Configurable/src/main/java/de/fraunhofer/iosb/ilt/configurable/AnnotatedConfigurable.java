@@ -18,6 +18,7 @@
 package de.fraunhofer.iosb.ilt.configurable;
 
 import com.google.gson.JsonElement;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableBinder;
 import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableClass;
 
 /**
@@ -29,7 +30,9 @@ import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableClass;
 public interface AnnotatedConfigurable<C, D> extends Configurable<C, D> {
 
     /**
-     * Configure the instance using the given configuration.
+     * Configure the instance using the given configuration. If the class has
+     * a generated {@link ConfigurableBinder}, the editor is built, and the
+     * values are copied, by that binder, otherwise reflection is used.
      *
      * @param config The configuration to use for this instance.
      * @param context the object that defines the context at runtime.
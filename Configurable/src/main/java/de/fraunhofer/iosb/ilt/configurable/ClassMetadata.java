@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable;
+
+import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableClass;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.annotation.MemberValue;
+import javassist.bytecode.annotation.StringMemberValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The metadata of a class that is needed to offer it in an EditorSubclass:
+ * whether it can be instantiated, the annotations on it and its
+ * ConfigurableClass names. The metadata is read from the class file, so the
+ * class itself is not loaded.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class ClassMetadata {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassMetadata.class.getName());
+    private static final String OBJECT_CLASS_NAME = Object.class.getName();
+    private static final String CONFIGURABLE_CLASS_NAME = ConfigurableClass.class.getName();
+
+    private final ClassLoader loader;
+    private final String className;
+    private final String superclassName;
+    private final boolean isInterface;
+    private final boolean isAbstract;
+    private final Set<String> annotationNames;
+    private final String jsonName;
+    private final String displayName;
+
+    private ClassMetadata(ClassLoader loader, String className, String superclassName, boolean isInterface, boolean isAbstract, Set<String> annotationNames, String jsonName, String displayName) {
+        this.loader = loader;
+        this.className = className;
+        this.superclassName = superclassName;
+        this.isInterface = isInterface;
+        this.isAbstract = isAbstract;
+        this.annotationNames = Collections.unmodifiableSet(annotationNames);
+        this.jsonName = jsonName;
+        this.displayName = displayName;
+    }
+
+    /**
+     * Read the metadata of the class with the given name from its class file.
+     * If the class file can not be found as a resource, the class is loaded,
+     * without initialising it.
+     *
+     * @param className The (binary) name of the class.
+     * @param loader The class loader to find the class file with.
+     * @return The metadata of the class, or null if the class can not be found.
+     */
+    public static ClassMetadata forName(String className, ClassLoader loader) {
+        final String resource = className.replace('.', '/') + ".class";
+        try (InputStream input = loader.getResourceAsStream(resource)) {
+            if (input != null) {
+                return fromClassFile(loader, new ClassFile(new DataInputStream(new BufferedInputStream(input))));
+            }
+        } catch (IOException | RuntimeException exc) {
+            LOGGER.debug("Failed to read class file of {}: {}", className, exc.getMessage());
+        }
+        try {
+            return fromClass(Class.forName(className, false, loader));
+        } catch (ClassNotFoundException | LinkageError exc) {
+            LOGGER.debug("Could not find class {}.", className);
+            return null;
+        }
+    }
+
+    private static ClassMetadata fromClassFile(ClassLoader loader, ClassFile classFile) {
+        final Set<String> annotationNames = new HashSet<>();
+        String jsonName = null;
+        String displayName = null;
+        final AnnotationsAttribute attribute = (AnnotationsAttribute) classFile.getAttribute(AnnotationsAttribute.visibleTag);
+        if (attribute != null) {
+            for (javassist.bytecode.annotation.Annotation annotation : attribute.getAnnotations()) {
+                annotationNames.add(annotation.getTypeName());
+                if (CONFIGURABLE_CLASS_NAME.equals(annotation.getTypeName())) {
+                    jsonName = getStringMember(annotation, "jsonName");
+                    displayName = getStringMember(annotation, "displayName");
+                }
+            }
+        }
+        String superclassName = classFile.getSuperclass();
+        if (classFile.isInterface() || OBJECT_CLASS_NAME.equals(classFile.getName())) {
+            superclassName = null;
+        }
+        return new ClassMetadata(
+                loader,
+                classFile.getName(),
+                superclassName,
+                classFile.isInterface(),
+                classFile.isAbstract(),
+                annotationNames,
+                jsonName,
+                displayName);
+    }
+
+    private static String getStringMember(javassist.bytecode.annotation.Annotation annotation, String name) {
+        final MemberValue value = annotation.getMemberValue(name);
+        if (value instanceof StringMemberValue stringValue) {
+            return stringValue.getValue();
+        }
+        return "";
+    }
+
+    /**
+     * Create the metadata of an already loaded class.
+     *
+     * @param clazz The class to create the metadata for.
+     * @return The metadata of the given class.
+     */
+    public static ClassMetadata fromClass(Class<?> clazz) {
+        final Set<String> annotationNames = new HashSet<>();
+        for (Annotation annotation : clazz.getDeclaredAnnotations()) {
+            annotationNames.add(annotation.annotationType().getName());
+        }
+        final ConfigurableClass annotation = clazz.getAnnotation(ConfigurableClass.class);
+        final Class<?> superclass = clazz.getSuperclass();
+        final ClassLoader loader = clazz.getClassLoader() == null ? ClassMetadata.class.getClassLoader() : clazz.getClassLoader();
+        return new ClassMetadata(
+                loader,
+                clazz.getName(),
+                superclass == null ? null : superclass.getName(),
+                clazz.isInterface(),
+                Modifier.isAbstract(clazz.getModifiers()),
+                annotationNames,
+                annotation == null ? null : annotation.jsonName(),
+                annotation == null ? null : annotation.displayName());
+    }
+
+    /**
+     * Create a copy of this metadata with the given names, replacing the names
+     * from the ConfigurableClass annotation. Null or empty names do not replace
+     * the names from the annotation.
+     *
+     * @param jsonName The jsonName to use.
+     * @param displayName The displayName to use.
+     * @return A copy of this metadata with the given names.
+     */
+    public ClassMetadata withNames(String jsonName, String displayName) {
+        return new ClassMetadata(
+                loader,
+                className,
+                superclassName,
+                isInterface,
+                isAbstract,
+                annotationNames,
+                Utils.isNullOrEmpty(jsonName) ? this.jsonName : jsonName,
+                Utils.isNullOrEmpty(displayName) ? this.displayName : displayName);
+    }
+
+    /**
+     * The (binary) name of the class.
+     *
+     * @return The (binary) name of the class.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    public boolean isInterface() {
+        return isInterface;
+    }
+
+    public boolean isAbstract() {
+        return isAbstract;
+    }
+
+    /**
+     * Checks if the class is not an interface and not abstract.
+     *
+     * @return true if the class can be instantiated.
+     */
+    public boolean isConcrete() {
+        return !isInterface && !isAbstract;
+    }
+
+    /**
+     * The names of the runtime-visible annotations declared directly on the
+     * class.
+     *
+     * @return The names of the annotations on the class.
+     */
+    public Set<String> getAnnotationNames() {
+        return annotationNames;
+    }
+
+    /**
+     * Checks if the class has the given annotation, either directly or, for
+     * annotations marked {@link Inherited}, on one of its superclasses. This
+     * follows the semantics of {@link Class#getAnnotation(java.lang.Class)}.
+     *
+     * @param annotation The annotation type to check for.
+     * @return true if the class has the given annotation.
+     */
+    public boolean hasAnnotation(Class<? extends Annotation> annotation) {
+        if (annotationNames.contains(annotation.getName())) {
+            return true;
+        }
+        if (superclassName == null || OBJECT_CLASS_NAME.equals(superclassName) || !annotation.isAnnotationPresent(Inherited.class)) {
+            return false;
+        }
+        final ClassMetadata superclass = forName(superclassName, loader);
+        return superclass != null && superclass.hasAnnotation(annotation);
+    }
+
+    /**
+     * The jsonName from the ConfigurableClass annotation of the class.
+     *
+     * @return The jsonName, empty if the annotation does not define a
+     * jsonName, or null if the class has no ConfigurableClass annotation.
+     */
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    /**
+     * The displayName from the ConfigurableClass annotation of the class.
+     *
+     * @return The displayName, empty if the annotation does not define a
+     * displayName, or null if the class has no ConfigurableClass annotation.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return className;
+    }
+}
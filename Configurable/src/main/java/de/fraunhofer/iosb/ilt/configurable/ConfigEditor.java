@@ -182,4 +182,17 @@ public interface ConfigEditor<T> {
     public default boolean isDefault() {
         return false;
     }
+
+    /**
+     * Create a copy of this editor, with the same settings, contexts and
+     * value, but without any GUI components. The copy shares no mutable state
+     * with this editor, and this editor is not modified, so copies can be made
+     * concurrently from an editor that is no longer changed.
+     *
+     * @return A copy of this editor.
+     * @throws UnsupportedOperationException if the editor can not be copied.
+     */
+    public default ConfigEditor<T> copy() {
+        throw new UnsupportedOperationException("Copying not supported by " + getClass().getName());
+    }
 }
@@ -19,7 +19,7 @@ package de.fraunhofer.iosb.ilt.configurable;
 
 import static de.fraunhofer.iosb.ilt.configurable.Configurable.CLASS_CONFIG_EDITOR_FACTORY_METHOD_NAME;
 
-import de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper;
+import de.fraunhofer.iosb.ilt.configurable.annotations.EditorPrototypes;
 import java.util.Arrays;
 import java.util.Optional;
 import org.apache.commons.lang3.reflect.MethodUtils;
@@ -60,8 +60,8 @@ public final class ConfigEditors {
         }
 
         return Optional.ofNullable(
-                AnnotationHelper
-                        .generateEditorFromAnnotations(subclassType, runtimeContext, editorContext)
+                EditorPrototypes
+                        .getEditor(subclassType, runtimeContext, editorContext)
                         .orElse(null));
     }
 
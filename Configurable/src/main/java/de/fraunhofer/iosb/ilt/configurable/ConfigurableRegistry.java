@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable;
+
+import java.util.Collection;
+
+/**
+ * Service interface through which modules declare the implementations they
+ * provide. Implementations of this interface are found using
+ * {@link java.util.ServiceLoader}, by listing them in
+ * {@code META-INF/services/de.fraunhofer.iosb.ilt.configurable.ConfigurableRegistry}.
+ * When implementations are registered for an interface, EditorSubclass only
+ * offers the registered implementations, and does not search the classpath.
+ *
+ * @author Hylke van der Schaaf
+ * @see ImplementationRegistry
+ */
+public interface ConfigurableRegistry {
+
+    /**
+     * An implementation of an interface or superclass.
+     *
+     * @param iface The interface or superclass that is implemented.
+     * @param implementation The implementing class.
+     * @param jsonName The name to use in JSON, or null or empty to use the name
+     * from the ConfigurableClass annotation or the class name.
+     * @param displayName The name to show to the user, or null or empty to use
+     * the name from the ConfigurableClass annotation or the jsonName.
+     */
+    public static record Implementation(Class<?> iface, Class<?> implementation, String jsonName, String displayName) {
+
+        public Implementation {
+            if (!iface.isAssignableFrom(implementation)) {
+                throw new IllegalArgumentException(implementation.getName() + " is not a subtype of " + iface.getName());
+            }
+        }
+
+        public Implementation(Class<?> iface, Class<?> implementation) {
+            this(iface, implementation, null, null);
+        }
+    }
+
+    /**
+     * Get the implementations provided by this registry.
+     *
+     * @return The implementations provided by this registry.
+     */
+    public Collection<Implementation> getImplementations();
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable;
+
+/**
+ * Interface for configuration editors that need the runtime and edit contexts,
+ * for instance to create editors for the classes they configure. When editors
+ * are generated from annotations, the contexts are passed to editors that
+ * implement this interface right after they are created.
+ *
+ * @author Hylke van der Schaaf
+ * @param <C> The class type that provides context at runtime.
+ * @param <D> The class type that provides context while editing.
+ */
+public interface ContextAwareEditor<C, D> {
+
+    /**
+     * Set the contexts of the editor.
+     *
+     * @param context the context.
+     * @param edtCtx the edit context.
+     */
+    public void setContexts(C context, D edtCtx);
+
+}
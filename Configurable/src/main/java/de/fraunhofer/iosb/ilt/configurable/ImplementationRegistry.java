@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable;
+
+import de.fraunhofer.iosb.ilt.configurable.ConfigurableRegistry.Implementation;
+import de.fraunhofer.iosb.ilt.configurable.editor.SubclassCatalog;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the explicitly registered implementations of interfaces and
+ * superclasses. Implementations are registered programmatically, using
+ * {@link #register(java.lang.Class, java.lang.Class)}, or by modules that
+ * provide a {@link ConfigurableRegistry} service.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class ImplementationRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImplementationRegistry.class.getName());
+
+    /**
+     * Holder for the registrations. The ServiceLoader registries are loaded
+     * exactly once, on first use.
+     */
+    private static final class Holder {
+
+        private static final Map<Class<?>, List<Implementation>> IMPLEMENTATIONS = loadServices();
+    }
+
+    private ImplementationRegistry() {
+        // Utility class.
+    }
+
+    private static Map<Class<?>, List<Implementation>> loadServices() {
+        final Map<Class<?>, List<Implementation>> implementations = new ConcurrentHashMap<>();
+        final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        final ClassLoader loader = contextLoader == null ? ImplementationRegistry.class.getClassLoader() : contextLoader;
+        final Iterator<ConfigurableRegistry> registries = ServiceLoader.load(ConfigurableRegistry.class, loader).iterator();
+        while (hasNext(registries)) {
+            try {
+                final ConfigurableRegistry registry = registries.next();
+                LOGGER.debug("Loading implementations from {}", registry.getClass().getName());
+                for (Implementation implementation : registry.getImplementations()) {
+                    add(implementations, implementation);
+                }
+            } catch (ServiceConfigurationError | RuntimeException exc) {
+                LOGGER.warn("Failed to load ConfigurableRegistry: {}", exc.getMessage());
+                LOGGER.debug("Exception:", exc);
+            }
+        }
+        return implementations;
+    }
+
+    private static boolean hasNext(Iterator<ConfigurableRegistry> registries) {
+        try {
+            return registries.hasNext();
+        } catch (ServiceConfigurationError exc) {
+            LOGGER.warn("Failed to find ConfigurableRegistry services: {}", exc.getMessage());
+            return false;
+        }
+    }
+
+    private static void add(Map<Class<?>, List<Implementation>> implementations, Implementation implementation) {
+        final List<Implementation> list = implementations.computeIfAbsent(implementation.iface(), k -> new CopyOnWriteArrayList<>());
+        list.removeIf(i -> i.implementation().equals(implementation.implementation()));
+        list.add(implementation);
+    }
+
+    /**
+     * Register an implementation of the given interface or superclass. Its
+     * names are taken from its ConfigurableClass annotation.
+     *
+     * @param <T> The type of the interface.
+     * @param iface The interface or superclass that is implemented.
+     * @param implementation The implementing class.
+     */
+    public static <T> void register(Class<T> iface, Class<? extends T> implementation) {
+        register(new Implementation(iface, implementation));
+    }
+
+    /**
+     * Register an implementation of an interface or superclass. Registering
+     * the same implementation again replaces the earlier registration.
+     *
+     * @param implementation The implementation to register.
+     */
+    public static synchronized void register(Implementation implementation) {
+        add(Holder.IMPLEMENTATIONS, implementation);
+        SubclassCatalog.clearCache();
+    }
+
+    /**
+     * Checks if there are implementations registered for the given interface
+     * or superclass.
+     *
+     * @param iface The interface or superclass to check.
+     * @return true if implementations are registered for the given type.
+     */
+    public static boolean hasImplementations(Class<?> iface) {
+        return Holder.IMPLEMENTATIONS.containsKey(iface);
+    }
+
+    /**
+     * Get the implementations registered for the given interface or
+     * superclass.
+     *
+     * @param iface The interface or superclass to get the implementations of.
+     * @return The registered implementations, can be empty.
+     */
+    public static List<Implementation> getImplementations(Class<?> iface) {
+        return Collections.unmodifiableList(Holder.IMPLEMENTATIONS.getOrDefault(iface, Collections.emptyList()));
+    }
+}
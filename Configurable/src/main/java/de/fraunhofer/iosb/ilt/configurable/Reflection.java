@@ -18,13 +18,26 @@
 package de.fraunhofer.iosb.ilt.configurable;
 
 import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import org.reflections.Reflections;
 import org.reflections.scanners.Scanners;
-import org.reflections.util.ClasspathHelper;
 import org.reflections.util.ConfigurationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Utility methods for Reflections.
@@ -33,28 +46,391 @@ import org.reflections.util.ConfigurationBuilder;
  */
 public class Reflection {
 
-    private static Reflections reflections;
+    private static final Logger LOGGER = LoggerFactory.getLogger(Reflection.class.getName());
 
-    public static synchronized Reflections getReflections() {
+    /**
+     * The system property that can be used to set the directory in which the
+     * results of the classpath scan are cached.
+     */
+    public static final String PROPERTY_SCAN_CACHE_DIR = "configurable.scanCache.dir";
+
+    /**
+     * The system property that can be set to "false" to not scan the
+     * classpath entries that have no {@link SubtypeIndex}, when other entries
+     * do have one. Subtypes in those entries are then not found.
+     */
+    public static final String PROPERTY_SCAN_UNINDEXED = "configurable.scan.unindexed";
+
+    /**
+     * The (running or finished) classpath scan. Set once, by the first caller
+     * that needs the scan, after which reading it needs no locking.
+     */
+    private static final AtomicReference<CompletableFuture<Reflections>> REFLECTIONS = new AtomicReference<>();
+
+    /**
+     * The (running or finished) scan of the classpath entries that have no
+     * {@link SubtypeIndex}, used when other entries do have an index. Holds
+     * null if there are no such entries to scan.
+     */
+    private static final AtomicReference<CompletableFuture<Reflections>> UNINDEXED_SCAN = new AtomicReference<>();
+
+    private static Path scanCacheDirectory;
+
+    private static ScanProfile scanProfile;
+
+    /**
+     * Get the result of the classpath scan. If the scan has not been started
+     * yet, it is done on the calling thread. If the scan is running in the
+     * background, this method waits for it to finish.
+     *
+     * @return The result of the classpath scan.
+     */
+    public static Reflections getReflections() {
+        return join(startScan(REFLECTIONS, Reflection::scan, Runnable::run));
+    }
+
+    /**
+     * Get the result of the scan of the classpath entries without a
+     * {@link SubtypeIndex}.
+     *
+     * @return The scan result, or null if there is nothing to scan.
+     */
+    private static Reflections getUnindexedReflections() {
+        return join(startScan(UNINDEXED_SCAN, Reflection::scanUnindexed, Runnable::run));
+    }
+
+    private static Reflections join(CompletableFuture<Reflections> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            throw exc;
+        }
+    }
+
+    /**
+     * Start class discovery in the background, so that the first editor that
+     * needs a list of classes does not have to wait for the full discovery.
+     * Loads the compile-time {@link SubtypeIndex} and starts the scan of the
+     * classpath entries that have no index, or of the entire classpath if no
+     * index is available.
+     *
+     * @param executor The executor to run the discovery on.
+     * @return A future that completes when class discovery is ready.
+     */
+    public static CompletableFuture<Void> warmUpAsync(Executor executor) {
+        return CompletableFuture
+                .supplyAsync(SubtypeIndex::getIndex, executor)
+                .thenCompose(index -> {
+                    if (index.isAvailable()) {
+                        return startScan(UNINDEXED_SCAN, Reflection::scanUnindexed, executor).thenApply(r -> null);
+                    }
+                    return startScan(REFLECTIONS, Reflection::scan, executor).thenApply(r -> null);
+                });
+    }
+
+    private static CompletableFuture<Reflections> startScan(AtomicReference<CompletableFuture<Reflections>> holder, Supplier<Reflections> scanner, Executor executor) {
+        final CompletableFuture<Reflections> existing = holder.get();
+        if (existing != null) {
+            return existing;
+        }
+        final CompletableFuture<Reflections> created = new CompletableFuture<>();
+        if (!holder.compareAndSet(null, created)) {
+            return holder.get();
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    created.complete(scanner.get());
+                } catch (RuntimeException | Error exc) {
+                    failScan(holder, created, exc);
+                }
+            });
+        } catch (RejectedExecutionException exc) {
+            failScan(holder, created, exc);
+        }
+        return created;
+    }
+
+    private static void failScan(AtomicReference<CompletableFuture<Reflections>> holder, CompletableFuture<Reflections> future, Throwable exc) {
+        // Allow a later call to try again.
+        holder.compareAndSet(future, null);
+        future.completeExceptionally(exc);
+    }
+
+    private static Reflections scan() {
+        final ScanProfile profile = getScanProfile();
+        return scan(profile.createConfiguration(), profile, "reflections");
+    }
+
+    /**
+     * Scan the classpath entries of the scan profile that have no
+     * {@link SubtypeIndex}.
+     *
+     * @return The scan result, or null if there is nothing to scan.
+     */
+    private static Reflections scanUnindexed() {
+        final ScanProfile profile = getScanProfile();
+        final ConfigurationBuilder config = profile.createConfiguration();
+        final SubtypeIndex index = SubtypeIndex.getIndex();
+        final List<URL> unindexed = new ArrayList<>();
+        for (URL url : config.getUrls()) {
+            if (!index.isIndexed(url)) {
+                unindexed.add(url);
+            }
+        }
+        if (unindexed.isEmpty()) {
+            return null;
+        }
+        if (!Boolean.parseBoolean(System.getProperty(PROPERTY_SCAN_UNINDEXED, "true"))) {
+            LOGGER.warn("{} classpath entries have no subtype index and are not scanned, since {} is false. Subtypes in these entries are not found.", unindexed.size(), PROPERTY_SCAN_UNINDEXED);
+            LOGGER.debug("Entries without index: {}", unindexed);
+            return null;
+        }
+        LOGGER.info("Scanning {} classpath entries that have no subtype index.", unindexed.size());
+        config.setUrls(unindexed);
+        return scan(config, profile, "reflections-unindexed");
+    }
+
+    private static Reflections scan(ConfigurationBuilder config, ScanProfile profile, String cacheName) {
+        final Path cacheDirectory = getScanCacheDirectory();
+        if (cacheDirectory == null) {
+            return new Reflections(config);
+        }
+        final ScanCache cache = new ScanCache(cacheDirectory, cacheName, config.getUrls(), profile.toString());
+        Reflections reflections = cache.load();
         if (reflections == null) {
-            ConfigurationBuilder config = new ConfigurationBuilder()
-                    .addUrls(ClasspathHelper.forJavaClassPath())
-                    .setScanners(Scanners.values());
             reflections = new Reflections(config);
+            cache.save(reflections);
         }
         return reflections;
     }
 
     /**
-     * Returns all subtypes of the given class or interface.
+     * Get the profile that defines what the classpath scan scans. If not set
+     * using {@link #setScanProfile(ScanProfile)}, the profile is created from
+     * system properties.
+     *
+     * @return The profile used for the classpath scan.
+     * @see ScanProfile#fromSystemProperties()
+     */
+    public static synchronized ScanProfile getScanProfile() {
+        if (scanProfile == null) {
+            scanProfile = ScanProfile.fromSystemProperties();
+        }
+        return scanProfile;
+    }
+
+    /**
+     * Set the profile that defines what the classpath scan scans. Can only be
+     * set once, before the first scan.
+     *
+     * @param profile The profile to use for the classpath scan.
+     * @throws IllegalStateException if the classpath was already scanned, or
+     * the profile was already set.
+     */
+    public static synchronized void setScanProfile(ScanProfile profile) {
+        if (REFLECTIONS.get() != null || UNINDEXED_SCAN.get() != null || scanProfile != null) {
+            throw new IllegalStateException("Scan profile can only be set once, before the first scan.");
+        }
+        scanProfile = profile;
+    }
+
+    /**
+     * Get the directory in which the results of the classpath scan are cached.
+     * If not set using {@link #setScanCacheDirectory(java.nio.file.Path)}, the
+     * system property {@value #PROPERTY_SCAN_CACHE_DIR} is used.
+     *
+     * @return The directory to store the scan cache in, or null if the scan
+     * result is not cached.
+     */
+    public static synchronized Path getScanCacheDirectory() {
+        if (scanCacheDirectory != null) {
+            return scanCacheDirectory;
+        }
+        final String property = System.getProperty(PROPERTY_SCAN_CACHE_DIR);
+        if (Utils.isNullOrEmpty(property)) {
+            return null;
+        }
+        return Paths.get(property);
+    }
+
+    /**
+     * Set the directory in which the results of the classpath scan are cached.
+     * The cache is keyed by the path, size and modification time of all
+     * classpath entries, so a changed classpath results in a fresh scan. Must
+     * be set before the first scan.
+     *
+     * @param directory The directory to store the scan cache in, or null to
+     * fall back to the system property {@value #PROPERTY_SCAN_CACHE_DIR}.
+     */
+    public static synchronized void setScanCacheDirectory(Path directory) {
+        if (REFLECTIONS.get() != null || UNINDEXED_SCAN.get() != null) {
+            LOGGER.warn("Classpath already scanned, setting the scan cache directory has no effect.");
+        }
+        scanCacheDirectory = directory;
+    }
+
+    /**
+     * Returns all subtypes of the given class or interface. If the given type
+     * is sealed, the subtypes are found by following the permitted subclasses.
+     * If a compile-time {@link SubtypeIndex} is available, the subtypes are
+     * taken from the index, merged with the result of scanning the classpath
+     * entries that have no index. Otherwise the classpath is scanned.
      *
      * @param parent The class or interface to get subtypes of.
      * @return The list of classes.
      */
     public static Set<Class<?>> getSubtypesOf(Class parent) {
+        if (parent.isSealed()) {
+            final Set<Class<?>> result = new LinkedHashSet<>();
+            addPermittedSubtypes(parent, result);
+            return result;
+        }
+        final SubtypeIndex index = SubtypeIndex.getIndex();
+        if (index.isAvailable()) {
+            return loadSubtypes(parent, findSubtypeNames(parent, index));
+        }
         return getReflections().getSubTypesOf(parent);
     }
 
+    /**
+     * Adds the permitted subclasses of the given sealed type, recursively. Only
+     * the subtypes of non-sealed permitted subclasses need to be discovered
+     * using the index or the classpath scan.
+     */
+    private static void addPermittedSubtypes(Class<?> parent, Set<Class<?>> result) {
+        for (Class<?> subtype : parent.getPermittedSubclasses()) {
+            if (!result.add(subtype)) {
+                continue;
+            }
+            if (subtype.isSealed()) {
+                addPermittedSubtypes(subtype, result);
+            } else if (!Modifier.isFinal(subtype.getModifiers())) {
+                result.addAll(getSubtypesOf(subtype));
+            }
+        }
+    }
+
+    /**
+     * Find the names of the subtypes of the given type in the index and in the
+     * scan of the classpath entries without index. A subtype in one can have
+     * its own subtypes in the other, so both are followed until no new
+     * subtypes are found.
+     */
+    private static Set<String> findSubtypeNames(Class<?> parent, SubtypeIndex index) {
+        final Reflections unindexed = getUnindexedReflections();
+        if (unindexed == null) {
+            return index.getSubtypeNames(parent.getName());
+        }
+        final Set<String> result = new LinkedHashSet<>();
+        final Deque<String> todo = new ArrayDeque<>();
+        todo.add(parent.getName());
+        while (!todo.isEmpty()) {
+            final String name = todo.poll();
+            for (String subtype : index.getSubtypeNames(name)) {
+                if (result.add(subtype)) {
+                    todo.add(subtype);
+                }
+            }
+            for (String subtype : unindexed.get(Scanners.SubTypes.of(name))) {
+                if (result.add(subtype)) {
+                    todo.add(subtype);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<Class<?>> loadSubtypes(Class<?> parent, Set<String> names) {
+        final ClassLoader loader = findClassLoader(parent);
+        final Set<Class<?>> result = new LinkedHashSet<>();
+        for (String name : names) {
+            try {
+                final Class<?> subtype = Class.forName(name, false, loader);
+                if (parent.isAssignableFrom(subtype)) {
+                    result.add(subtype);
+                } else {
+                    LOGGER.debug("Stale index entry: {} is not a subtype of {}.", name, parent.getName());
+                }
+            } catch (ClassNotFoundException | LinkageError exc) {
+                LOGGER.debug("Stale index entry: could not load {}.", name);
+            }
+        }
+        return result;
+    }
+
+    private static ClassLoader findClassLoader(Class<?> parent) {
+        return parent.getClassLoader() == null ? Reflection.class.getClassLoader() : parent.getClassLoader();
+    }
+
+    /**
+     * Returns the names of all subtypes of the given class or interface,
+     * without loading any of these subtypes. Only for sealed types the
+     * permitted subclasses are loaded, to find them.
+     *
+     * @param parent The class or interface to get subtypes of.
+     * @return The (binary) names of the subtypes.
+     */
+    public static Set<String> getSubtypeNamesOf(Class<?> parent) {
+        if (parent.isSealed()) {
+            final Set<String> result = new LinkedHashSet<>();
+            for (Class<?> subtype : getSubtypesOf(parent)) {
+                result.add(subtype.getName());
+            }
+            return result;
+        }
+        final SubtypeIndex index = SubtypeIndex.getIndex();
+        if (index.isAvailable()) {
+            return findSubtypeNames(parent, index);
+        }
+        return getReflections().get(Scanners.SubTypes.of(parent));
+    }
+
+    /**
+     * Returns the metadata of all subtypes of the given class or interface,
+     * optionally including the given class itself, and optionally filtering
+     * out all interfaces and abstract classes. The metadata is read from the
+     * class files, the subtypes are not loaded, unless the given type is
+     * sealed.
+     *
+     * @param parent The class or interface to find subclasses of.
+     * @param interfaces Should interfaces and abstract classes be included.
+     * @param includeParent Should the given parent class itself be returned.
+     * @return The metadata of the subtypes.
+     */
+    public static List<ClassMetadata> getSubtypeMetadataOf(Class<?> parent, boolean interfaces, boolean includeParent) {
+        final ClassLoader loader = findClassLoader(parent);
+        final List<ClassMetadata> result = new ArrayList<>();
+        if (includeParent) {
+            final ClassMetadata metadata = ClassMetadata.fromClass(parent);
+            if (interfaces || metadata.isConcrete()) {
+                result.add(metadata);
+            }
+        }
+        if (parent.isSealed()) {
+            // The permitted subclasses are loaded anyway.
+            for (Class<?> subtype : getSubtypesOf(parent)) {
+                final ClassMetadata metadata = ClassMetadata.fromClass(subtype);
+                if (interfaces || metadata.isConcrete()) {
+                    result.add(metadata);
+                }
+            }
+            return result;
+        }
+        for (String name : getSubtypeNamesOf(parent)) {
+            final ClassMetadata metadata = ClassMetadata.forName(name, loader);
+            if (metadata == null) {
+                LOGGER.debug("Stale entry: could not find {}.", name);
+            } else if (interfaces || metadata.isConcrete()) {
+                result.add(metadata);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns all subtypes of the given class or interface, excluding the given
      * class itself. Optionally filtering out all interfaces.
@@ -78,7 +454,7 @@ public class Reflection {
      * @return The list of classes.
      */
     public static List<Class<?>> getSubtypesOf(Class parent, boolean interfaces, boolean includeParent) {
-        Set<Class<?>> types = getReflections().getSubTypesOf(parent);
+        Set<Class<?>> types = getSubtypesOf(parent);
         if (includeParent && (interfaces || (!parent.isInterface() && !Modifier.isAbstract(parent.getModifiers())))) {
             types.add(parent);
         }
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.reflections.Reflections;
+import org.reflections.Store;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on-disk cache of the results of a Reflections classpath scan. The name
+ * of the cache file contains a hash of the scanned classpath entries, and a
+ * hash of the fingerprint of the path, size and modification time of every
+ * scanned classpath entry. Applications with different classpaths can share
+ * the cache directory without replacing each other's cache files, and any
+ * change to the classpath results in a new scan, that replaces the stale
+ * cache files of the same classpath entries.
+ *
+ * @author Hylke van der Schaaf
+ */
+final class ScanCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanCache.class.getName());
+    private static final String FILE_SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int FORMAT_VERSION = 1;
+    private static final int HASH_LENGTH = 16;
+
+    /**
+     * The contents of a cache file.
+     */
+    private static class CacheFile {
+
+        int version;
+        String fingerprint;
+        List<String> entries;
+        Map<String, Map<String, Set<String>>> store;
+    }
+
+    private final Path directory;
+    private final String name;
+    private final List<String> entries = new ArrayList<>();
+    private final String entriesHash;
+    private final String fingerprint;
+
+    /**
+     * Create a cache for the given classpath entries.
+     *
+     * @param directory The directory to store the cache file in.
+     * @param name The name of the cache file, without extension.
+     * @param urls The classpath entries that are scanned.
+     * @param settings Any settings that influence the scan result.
+     */
+    ScanCache(Path directory, String name, Collection<URL> urls, String settings) {
+        this.directory = directory;
+        this.name = name;
+        final MessageDigest entriesDigest = createDigest();
+        final MessageDigest digest = createDigest();
+        for (MessageDigest md : List.of(entriesDigest, digest)) {
+            md.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+            md.update(settings.getBytes(StandardCharsets.UTF_8));
+        }
+        for (URL url : urls) {
+            final String entry = url.toExternalForm();
+            entries.add(entry);
+            entriesDigest.update(entry.getBytes(StandardCharsets.UTF_8));
+            digest.update(entry.getBytes(StandardCharsets.UTF_8));
+            fingerprintEntry(digest, url);
+        }
+        entriesHash = HexFormat.of().formatHex(entriesDigest.digest()).substring(0, HASH_LENGTH);
+        fingerprint = HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exc) {
+            throw new IllegalStateException("SHA-256 not supported by JVM.", exc);
+        }
+    }
+
+    private static void fingerprintEntry(MessageDigest digest, URL url) {
+        final Path path;
+        try {
+            path = Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException exc) {
+            // Not a file, can only use the url itself.
+            return;
+        }
+        if (Files.isDirectory(path)) {
+            // The modification time of a directory does not change when a file in it changes.
+            try (Stream<Path> files = Files.walk(path)) {
+                files.filter(Files::isRegularFile)
+                        .sorted()
+                        .forEach(file -> fingerprintFile(digest, file));
+            } catch (IOException exc) {
+                LOGGER.debug("Failed to walk {}", path, exc);
+            }
+        } else {
+            fingerprintFile(digest, path);
+        }
+    }
+
+    private static void fingerprintFile(MessageDigest digest, Path file) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            digest.update((file + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis())
+                    .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException exc) {
+            // File does not exist (anymore).
+            digest.update(file.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * The fingerprint of the classpath this cache is for.
+     *
+     * @return The fingerprint of the classpath.
+     */
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    private String getFilePrefix() {
+        return name + "-" + entriesHash + "-";
+    }
+
+    private Path getCacheFile() {
+        return directory.resolve(getFilePrefix() + fingerprint.substring(0, HASH_LENGTH) + FILE_SUFFIX);
+    }
+
+    /**
+     * Remove the cache files for the same classpath entries, that were made
+     * for a different fingerprint of these entries.
+     *
+     * @param cacheFile The current cache file, that is kept.
+     */
+    private void deleteStale(Path cacheFile) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, getFilePrefix() + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                if (!file.equals(cacheFile)) {
+                    LOGGER.info("Removing stale scan cache {}", file);
+                    delete(file);
+                }
+            }
+        } catch (IOException exc) {
+            LOGGER.debug("Failed to list scan caches in {}", directory, exc);
+        }
+    }
+
+    /**
+     * Load the cached scan result.
+     *
+     * @return The cached scan result, or null if there is no valid cached scan
+     * result for the current classpath.
+     */
+    Reflections load() {
+        final Path cacheFile = getCacheFile();
+        if (!Files.isRegularFile(cacheFile)) {
+            LOGGER.debug("No scan cache found at {}", cacheFile);
+            return null;
+        }
+        final long start = System.currentTimeMillis();
+        final CacheFile contents;
+        try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            contents = new Gson().fromJson(reader, CacheFile.class);
+        } catch (IOException | JsonParseException exc) {
+            LOGGER.warn("Failed to read scan cache {}, removing: {}", cacheFile, exc.getMessage());
+            delete(cacheFile);
+            return null;
+        }
+        if (isStale(contents)) {
+            LOGGER.info("Scan cache {} is stale, removing.", cacheFile);
+            delete(cacheFile);
+            return null;
+        }
+        LOGGER.info("Loaded scan cache {} in {}ms.", cacheFile, System.currentTimeMillis() - start);
+        return new Reflections(new Store(contents.store));
+    }
+
+    private boolean isStale(CacheFile contents) {
+        return contents == null
+                || contents.version != FORMAT_VERSION
+                || !fingerprint.equals(contents.fingerprint)
+                || !entries.equals(contents.entries)
+                || contents.store == null;
+    }
+
+    /**
+     * Save the given scan result to the cache.
+     *
+     * @param reflections The scan result to save.
+     */
+    void save(Reflections reflections) {
+        final Path cacheFile = getCacheFile();
+        final CacheFile contents = new CacheFile();
+        contents.version = FORMAT_VERSION;
+        contents.fingerprint = fingerprint;
+        contents.entries = entries;
+        contents.store = reflections.getStore();
+        Path tempFile = null;
+        try {
+            Files.createDirectories(directory);
+            tempFile = Files.createTempFile(directory, name + "-", TEMP_SUFFIX);
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                new Gson().toJson(contents, writer);
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Saved scan cache to {}", cacheFile);
+            deleteStale(cacheFile);
+        } catch (IOException | UnsupportedOperationException exc) {
+            LOGGER.warn("Failed to write scan cache {}: {}", cacheFile, exc.getMessage());
+            if (tempFile != null) {
+                delete(tempFile);
+            }
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exc) {
+            LOGGER.debug("Failed to delete {}", file, exc);
+        }
+    }
+}
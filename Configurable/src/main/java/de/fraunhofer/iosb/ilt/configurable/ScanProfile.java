@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.reflections.scanners.Scanners;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
+
+/**
+ * Defines what the classpath scan of {@link Reflection} scans. By default only
+ * the indexes needed to find subtypes and annotated types are built, and the
+ * entire java classpath is scanned.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class ScanProfile {
+
+    /**
+     * The system property to set to "all" to build all Reflections indexes,
+     * instead of only the SubTypes and TypesAnnotated indexes.
+     */
+    public static final String PROPERTY_SCANNERS = "configurable.scan.scanners";
+    /**
+     * The system property holding a comma separated list of package prefixes
+     * to limit the scan to.
+     */
+    public static final String PROPERTY_PACKAGES = "configurable.scan.packages";
+    /**
+     * The system property holding a comma separated list of regular
+     * expressions. Only classpath entries with a URL matching one of these are
+     * scanned.
+     */
+    public static final String PROPERTY_JARS = "configurable.scan.jars";
+
+    private static final String SCANNERS_ALL = "all";
+
+    private boolean allScanners;
+    private final List<String> packagePrefixes = new ArrayList<>();
+    private final List<Pattern> jarFilters = new ArrayList<>();
+
+    /**
+     * Create a profile from the system properties {@value #PROPERTY_SCANNERS},
+     * {@value #PROPERTY_PACKAGES} and {@value #PROPERTY_JARS}.
+     *
+     * @return a profile configured from system properties.
+     */
+    public static ScanProfile fromSystemProperties() {
+        final ScanProfile profile = new ScanProfile();
+        profile.setAllScanners(SCANNERS_ALL.equalsIgnoreCase(System.getProperty(PROPERTY_SCANNERS, "")));
+        for (String prefix : splitCsv(System.getProperty(PROPERTY_PACKAGES, ""))) {
+            profile.addPackagePrefix(prefix);
+        }
+        for (String filter : splitCsv(System.getProperty(PROPERTY_JARS, ""))) {
+            profile.addJarFilter(filter);
+        }
+        return profile;
+    }
+
+    private static List<String> splitCsv(String csv) {
+        final List<String> result = new ArrayList<>();
+        for (String item : csv.split(",")) {
+            final String trimmed = item.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Flag indicating all Reflections indexes are built, instead of only the
+     * SubTypes and TypesAnnotated indexes.
+     *
+     * @return true if all indexes are built.
+     */
+    public boolean isAllScanners() {
+        return allScanners;
+    }
+
+    /**
+     * Flag indicating all Reflections indexes are built, instead of only the
+     * SubTypes and TypesAnnotated indexes. Only needed when using
+     * {@link Reflection#getReflections()} directly for other queries.
+     *
+     * @param allScanners if true, all indexes are built.
+     * @return this ScanProfile.
+     */
+    public ScanProfile setAllScanners(boolean allScanners) {
+        this.allScanners = allScanners;
+        return this;
+    }
+
+    /**
+     * Limit the scan to classes in packages starting with the given prefix.
+     * Note that the classes and interfaces in between an interface and its
+     * implementations also need to be in the scanned packages.
+     *
+     * @param prefix The package prefix to add.
+     * @return this ScanProfile.
+     */
+    public ScanProfile addPackagePrefix(String prefix) {
+        packagePrefixes.add(prefix);
+        return this;
+    }
+
+    public List<String> getPackagePrefixes() {
+        return Collections.unmodifiableList(packagePrefixes);
+    }
+
+    /**
+     * Limit the scan to classpath entries (jars or directories) with a URL
+     * that matches (contains a match for) the given regular expression.
+     *
+     * @param regex The regular expression to add.
+     * @return this ScanProfile.
+     */
+    public ScanProfile addJarFilter(String regex) {
+        jarFilters.add(Pattern.compile(regex));
+        return this;
+    }
+
+    public List<Pattern> getJarFilters() {
+        return Collections.unmodifiableList(jarFilters);
+    }
+
+    /**
+     * Create the Reflections configuration for this profile.
+     *
+     * @return the Reflections configuration for this profile.
+     */
+    public ConfigurationBuilder createConfiguration() {
+        final ConfigurationBuilder config = new ConfigurationBuilder();
+        final Collection<URL> urls;
+        if (packagePrefixes.isEmpty()) {
+            urls = ClasspathHelper.forJavaClassPath();
+        } else {
+            urls = new ArrayList<>();
+            final FilterBuilder filter = new FilterBuilder();
+            for (String prefix : packagePrefixes) {
+                urls.addAll(ClasspathHelper.forPackage(prefix));
+                filter.includePackage(prefix);
+            }
+            config.filterInputsBy(filter);
+        }
+        for (URL url : urls) {
+            if (matchesJarFilter(url)) {
+                config.addUrls(url);
+            }
+        }
+        if (allScanners) {
+            config.setScanners(Scanners.values());
+        } else {
+            config.setScanners(Scanners.SubTypes, Scanners.TypesAnnotated);
+        }
+        return config;
+    }
+
+    private boolean matchesJarFilter(URL url) {
+        if (jarFilters.isEmpty()) {
+            return true;
+        }
+        final String externalForm = url.toExternalForm();
+        for (Pattern filter : jarFilters) {
+            if (filter.matcher(externalForm).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A string representation that uniquely identifies the settings of this
+     * profile. Used to key the scan cache.
+     *
+     * @return A string representation of this profile.
+     */
+    @Override
+    public String toString() {
+        return "scanners=" + (allScanners ? SCANNERS_ALL : "minimal")
+                + ";packages=" + String.join(",", packagePrefixes)
+                + ";jars=" + jarFilters.stream().map(Pattern::pattern).collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The compile-time index of subtypes and ConfigurableClass metadata, as written
+ * by the SubtypeIndexProcessor. All index files on the classpath are merged.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class SubtypeIndex {
+
+    /**
+     * The resource holding the subtypes, one line per supertype-subtype pair,
+     * separated by a tab.
+     */
+    public static final String SUBTYPES_RESOURCE = "META-INF/configurable/subtypes.idx";
+    /**
+     * The resource holding the ConfigurableClass metadata, one line per class,
+     * holding the class name, jsonName and displayName, separated by tabs.
+     */
+    public static final String CLASSES_RESOURCE = "META-INF/configurable/classes.idx";
+
+    /**
+     * The system property that can be set to "false" to ignore the index and
+     * always scan the classpath.
+     */
+    public static final String PROPERTY_USE_INDEX = "configurable.subtypeIndex";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubtypeIndex.class.getName());
+
+    /**
+     * Holder for the lazily loaded index. The JVM guarantees the index is
+     * loaded exactly once, and reading it afterwards needs no locking.
+     */
+    private static final class Holder {
+
+        private static final SubtypeIndex INSTANCE = createIndex();
+    }
+
+    private final Map<String, Set<String>> subtypes = new HashMap<>();
+    private final Map<String, String[]> configurableClasses = new HashMap<>();
+    /**
+     * The classpath entries that contain an index, as returned by
+     * {@link #classpathKey(java.net.URL)}.
+     */
+    private final Set<String> indexedEntries = new HashSet<>();
+    private boolean available;
+
+    private SubtypeIndex() {
+        // Use getIndex()
+    }
+
+    /**
+     * Get the index, loading it from the classpath on first use.
+     *
+     * @return The index.
+     */
+    public static SubtypeIndex getIndex() {
+        return Holder.INSTANCE;
+    }
+
+    private static SubtypeIndex createIndex() {
+        final SubtypeIndex index = new SubtypeIndex();
+        if (Boolean.parseBoolean(System.getProperty(PROPERTY_USE_INDEX, "true"))) {
+            index.load(findClassLoader());
+        } else {
+            LOGGER.info("Subtype index disabled by system property {}.", PROPERTY_USE_INDEX);
+        }
+        return index;
+    }
+
+    private static ClassLoader findClassLoader() {
+        final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        if (contextLoader != null) {
+            return contextLoader;
+        }
+        return SubtypeIndex.class.getClassLoader();
+    }
+
+    private void load(ClassLoader loader) {
+        final long start = System.currentTimeMillis();
+        readAll(loader, SUBTYPES_RESOURCE, 2, parts -> subtypes.computeIfAbsent(parts[0], k -> new HashSet<>()).add(parts[1]));
+        readAll(loader, CLASSES_RESOURCE, 3, parts -> configurableClasses.put(parts[0], new String[]{parts[1], parts[2]}));
+        if (available) {
+            LOGGER.info("Loaded subtype index for {} types in {}ms.", subtypes.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    private void readAll(ClassLoader loader, String resource, int columns, Consumer<String[]> lineHandler) {
+        try {
+            final Enumeration<URL> urls = loader.getResources(resource);
+            while (urls.hasMoreElements()) {
+                final URL url = urls.nextElement();
+                available = true;
+                indexedEntries.add(entryKey(url, resource));
+                LOGGER.debug("Reading index {}", url);
+                try (InputStream input = url.openStream();
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        final String[] parts = splitLine(line, columns);
+                        if (parts != null) {
+                            lineHandler.accept(parts);
+                        }
+                    }
+                }
+            }
+        } catch (IOException exc) {
+            LOGGER.warn("Failed to read index {}: {}", resource, exc.getMessage());
+            LOGGER.debug("Exception:", exc);
+        }
+    }
+
+    /**
+     * Checks if there is an index on the classpath.
+     *
+     * @return true if an index was found and loaded.
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Checks if the given classpath entry (jar or directory) contains an
+     * index. Subtypes in entries without an index are not in this index.
+     *
+     * @param classpathEntry The URL of the classpath entry.
+     * @return true if the entry has an index.
+     */
+    public boolean isIndexed(URL classpathEntry) {
+        return indexedEntries.contains(classpathKey(classpathEntry.toExternalForm()));
+    }
+
+    /**
+     * The key of the classpath entry that holds the given resource.
+     */
+    private static String entryKey(URL resourceUrl, String resource) {
+        String entry = resourceUrl.toExternalForm();
+        if (entry.endsWith(resource)) {
+            entry = entry.substring(0, entry.length() - resource.length());
+        }
+        if (entry.startsWith("jar:") && entry.endsWith("!/")) {
+            entry = entry.substring("jar:".length(), entry.length() - "!/".length());
+        }
+        return classpathKey(entry);
+    }
+
+    /**
+     * Normalises the URL of a classpath entry, so directories with and
+     * without a trailing slash, and escaped and unescaped paths, are equal.
+     */
+    private static String classpathKey(String entry) {
+        try {
+            final URI uri = new URI(entry);
+            if ("file".equals(uri.getScheme())) {
+                return Paths.get(uri).toAbsolutePath().normalize().toString();
+            }
+        } catch (URISyntaxException | IllegalArgumentException exc) {
+            LOGGER.trace("Not a file URI: {}", entry);
+        }
+        return entry.endsWith("/") ? entry.substring(0, entry.length() - 1) : entry;
+    }
+
+    /**
+     * Get the names of all (direct and indirect) subtypes of the given type.
+     *
+     * @param parentName The (binary) name of the class or interface to get the
+     * subtypes of.
+     * @return The names of all subtypes of the given type, can be empty.
+     */
+    public Set<String> getSubtypeNames(String parentName) {
+        return Collections.unmodifiableSet(subtypes.getOrDefault(parentName, Collections.emptySet()));
+    }
+
+    /**
+     * Get the jsonName of the given class, as defined in the ConfigurableClass
+     * annotation on that class.
+     *
+     * @param className The (binary) name of the class.
+     * @return The jsonName, empty if the annotation does not define a
+     * jsonName, or null if the class has no (indexed) annotation.
+     */
+    public String getJsonName(String className) {
+        final String[] names = configurableClasses.get(className);
+        return names == null ? null : names[0];
+    }
+
+    /**
+     * Get the displayName of the given class, as defined in the
+     * ConfigurableClass annotation on that class.
+     *
+     * @param className The (binary) name of the class.
+     * @return The displayName, empty if the annotation does not define a
+     * displayName, or null if the class has no (indexed) annotation.
+     */
+    public String getDisplayName(String className) {
+        final String[] names = configurableClasses.get(className);
+        return names == null ? null : names[1];
+    }
+
+    /**
+     * Checks if the given value can be stored in an index line.
+     *
+     * @param value The value to check.
+     * @return true if the value does not contain tabs or line breaks.
+     */
+    public static boolean isValidIndexValue(String value) {
+        return value.indexOf('\t') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0;
+    }
+
+    /**
+     * Split a line of an index file into its columns.
+     *
+     * @param line The line to split.
+     * @param columns The number of columns the line must have.
+     * @return The columns, or null if the line is empty, a comment, or does not
+     * have the required number of columns.
+     */
+    public static String[] splitLine(String line, int columns) {
+        if (line.isEmpty() || line.charAt(0) == '#') {
+            return null;
+        }
+        final String[] parts = line.split("\t", -1);
+        if (parts.length != columns) {
+            return null;
+        }
+        return parts;
+    }
+}
@@ -17,6 +17,10 @@
  */
 package de.fraunhofer.iosb.ilt.configurable;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import java.util.Map;
+
 /**
  * @author scf
  */
@@ -28,4 +32,67 @@ public class Utils {
     public static boolean isNullOrEmpty(String value) {
         return value == null || value.isEmpty();
     }
+
+    /**
+     * A 64 bit hash of the given element that is consistent with its equals:
+     * numbers are hashed by their double value, since JsonPrimitive considers
+     * numbers of different types equal when their values are, and the members
+     * of objects are hashed independent of their order. Null and JsonNull
+     * have different hashes.
+     *
+     * @param element The element to hash, may be null.
+     * @return The hash of the element.
+     */
+    public static long jsonHash(JsonElement element) {
+        if (element == null) {
+            return 0;
+        }
+        if (element.isJsonObject()) {
+            long result = 1;
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                result += mix(stringHash(entry.getKey()) * 31 + jsonHash(entry.getValue()));
+            }
+            return result;
+        }
+        if (element.isJsonArray()) {
+            long result = 2;
+            for (JsonElement item : element.getAsJsonArray()) {
+                result = 31 * result + jsonHash(item);
+            }
+            return result;
+        }
+        if (element.isJsonPrimitive()) {
+            final JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isNumber()) {
+                // Adding 0.0 turns -0.0 into 0.0, which equals says are equal.
+                return mix(Double.doubleToLongBits(primitive.getAsDouble() + 0.0));
+            }
+            if (primitive.isBoolean()) {
+                return primitive.getAsBoolean() ? 5 : 6;
+            }
+            return mix(stringHash(primitive.getAsString()));
+        }
+        return 3;
+    }
+
+    private static long stringHash(String value) {
+        // FNV-1a, 64 bit.
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        // The finalizer of MurmurHash3.
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
 }
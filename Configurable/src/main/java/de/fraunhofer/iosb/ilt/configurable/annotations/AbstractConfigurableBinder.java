@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import de.fraunhofer.iosb.ilt.configurable.ConfigEditor;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.FieldPlan;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.PropertyWriter;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorMap;
+import java.util.HashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The base class of generated binders. It holds the {@link ClassBindingPlan}
+ * of the class, that is used for everything the generated code can not do
+ * directly: reading the editor options from the fields, and writing values
+ * that need a conversion, or that go into inaccessible fields.
+ *
+ * @author Hylke van der Schaaf
+ * @param <T> The type of the configurable class.
+ */
+public abstract class AbstractConfigurableBinder<T> implements ConfigurableBinder<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractConfigurableBinder.class.getName());
+
+    private final Class<T> type;
+    private final ClassBindingPlan plan;
+    /**
+     * The fields the generated code binds, filled by
+     * {@link #getFieldPlan(java.lang.String, java.lang.String)}.
+     */
+    private final Set<FieldPlan> boundFields = new HashSet<>();
+
+    protected AbstractConfigurableBinder(Class<T> type) {
+        this.type = type;
+        this.plan = ClassBindingPlan.of(type);
+    }
+
+    @Override
+    public Class<T> getType() {
+        return type;
+    }
+
+    public ClassBindingPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Checks if the generated code binds exactly the annotated fields that
+     * the class has at runtime. When a superclass from another jar gained
+     * annotated fields after the binder was generated, the binder is out of
+     * date.
+     *
+     * @return true if the binder binds all annotated fields of the class.
+     */
+    public boolean isUpToDate() {
+        return boundFields.size() == plan.getFields().size();
+    }
+
+    /**
+     * Find the plan of the annotated field with the given name, declared in
+     * the given class, and register it as bound by the generated code.
+     *
+     * @param declaringClassName The binary name of the class that declares the
+     * field.
+     * @param fieldName The name of the field.
+     * @return The plan of the field.
+     * @throws IllegalStateException If the field does not exist, or is not
+     * annotated, meaning the binder is out of date.
+     */
+    protected final FieldPlan getFieldPlan(String declaringClassName, String fieldName) {
+        for (FieldPlan fieldPlan : plan.getFields()) {
+            if (fieldPlan.getFieldName().equals(fieldName) && fieldPlan.getField().getDeclaringClass().getName().equals(declaringClassName)) {
+                boundFields.add(fieldPlan);
+                return fieldPlan;
+            }
+        }
+        throw new IllegalStateException("Binder for " + type.getName() + " is out of date, field " + declaringClassName + "." + fieldName + " not found.");
+    }
+
+    /**
+     * Create the empty editor map, with the profilesEdit of the class.
+     *
+     * @return A new, empty editor map.
+     */
+    protected final EditorMap<?> newEditorMap() {
+        final EditorMap<?> map = new EditorMap<>();
+        if (!plan.getProfilesEdit().isEmpty()) {
+            map.setProfilesEdit(plan.getProfilesEdit());
+        }
+        return map;
+    }
+
+    /**
+     * Create the editor for a field, for editor classes that the generated
+     * code can not instantiate directly.
+     *
+     * @param fieldPlan The field to create the editor for.
+     * @param context The instance that provides context at runtime.
+     * @param edtCtx The instance that provides context while editing.
+     * @return The editor, or null if the editor could not be instantiated.
+     */
+    @SuppressWarnings("rawtypes")
+    protected final ConfigEditor createEditor(FieldPlan fieldPlan, Object context, Object edtCtx) {
+        final Class<? extends ConfigEditor> editorClass = fieldPlan.getEditorClass();
+        try {
+            return AnnotationHelper.createEditor(editorClass, fieldPlan.getField(), context, edtCtx);
+        } catch (final ReflectiveOperationException ex) {
+            LOGGER.error("could not instantiate give editor: {}", editorClass);
+            LOGGER.info("Exception", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Write a value through the {@link ClassBindingPlan}, for values that the
+     * generated code can not assign directly.
+     *
+     * @param target The object to write to.
+     * @param fieldName The name of the field to write.
+     * @param value The value to write.
+     */
+    protected final void write(T target, String fieldName, Object value) {
+        write(target, plan.getWriter(fieldName), value);
+    }
+
+    /**
+     * Write a value through a writer of the {@link ClassBindingPlan}, that
+     * was resolved using {@link ClassBindingPlan#getWriter(java.lang.String)}.
+     *
+     * @param target The object to write to.
+     * @param writer The writer to use.
+     * @param value The value to write.
+     */
+    protected final void write(T target, PropertyWriter writer, Object value) {
+        if (!writer.write(target, value)) {
+            LOGGER.warn("Could not set field {} on {}.", writer.getFieldName(), type.getName());
+        }
+    }
+
+    /**
+     * Handle an exception thrown by a setter that the generated code called
+     * directly. Like {@link PropertyWriter#write(java.lang.Object, java.lang.Object)}
+     * does for setters it calls, the value is written to the field instead.
+     *
+     * @param target The object to write to.
+     * @param fieldName The name of the field to write.
+     * @param value The value to write.
+     * @param exc The exception thrown by the setter.
+     */
+    protected final void setterFailed(T target, String fieldName, Object value, RuntimeException exc) {
+        setterFailed(target, plan.getWriter(fieldName), value, exc);
+    }
+
+    /**
+     * Handle an exception thrown by a setter that the generated code called
+     * directly. Like {@link PropertyWriter#write(java.lang.Object, java.lang.Object)}
+     * does for setters it calls, the value is written to the field instead.
+     *
+     * @param target The object to write to.
+     * @param writer The writer of the property.
+     * @param value The value to write.
+     * @param exc The exception thrown by the setter.
+     */
+    protected final void setterFailed(T target, PropertyWriter writer, Object value, RuntimeException exc) {
+        LOGGER.debug("Failed to call setter for {} on {}.", writer.getFieldName(), type.getName(), exc);
+        if (!writer.writeField(target, value)) {
+            LOGGER.warn("Could not set field {} on {}.", writer.getFieldName(), type.getName());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorMap;
+
+/**
+ * The base class of binders generated at runtime by {@link RuntimeBinders}.
+ * Runtime binders only generate the code that copies values into the class,
+ * the editor is generated by the {@link AnnotationHelper}.
+ *
+ * @author Hylke van der Schaaf
+ * @param <T> The type of the configurable class.
+ */
+public abstract class AbstractRuntimeBinder<T> extends AbstractConfigurableBinder<T> {
+
+    protected AbstractRuntimeBinder(Class<T> type) {
+        super(type);
+    }
+
+    @Override
+    public <C, D> EditorMap<?> createEditor(C context, D edtCtx) {
+        final EditorMap<?> map = AnnotationHelper.generateEditorFromAnnotations(getType(), context, edtCtx).get();
+        map.setBinder(this);
+        return map;
+    }
+}
@@ -23,19 +23,26 @@ import de.fraunhofer.iosb.ilt.configurable.ConfigEditors;
 import de.fraunhofer.iosb.ilt.configurable.Configurable;
 import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
 import de.fraunhofer.iosb.ilt.configurable.ContentConfigEditor;
-import de.fraunhofer.iosb.ilt.configurable.Utils;
+import de.fraunhofer.iosb.ilt.configurable.ContextAwareEditor;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.ConstructorPlan;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.FieldPlan;
+import de.fraunhofer.iosb.ilt.configurable.editor.AbstractEditorMap;
+import de.fraunhofer.iosb.ilt.configurable.editor.AbstractEditorMap.Item;
 import de.fraunhofer.iosb.ilt.configurable.editor.EditorMap;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Parameter;
-import java.util.Arrays;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Objects;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.reflect.MethodUtils;
 import org.slf4j.LoggerFactory;
 
@@ -46,6 +53,32 @@ public class AnnotationHelper {
 
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(AnnotationHelper.class.getName());
 
+    /**
+     * The public setContexts methods of editor classes that do not implement
+     * ContextAwareEditor. Found once per class, most classes have none.
+     */
+    private static final ClassValue<ContextSetter[]> CONTEXT_SETTERS = new ClassValue<>() {
+        @Override
+        protected ContextSetter[] computeValue(Class<?> type) {
+            final List<ContextSetter> setters = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                if (!"setContexts".equals(method.getName()) || method.getParameterCount() != 2 || Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                final Method accessible = MethodUtils.getAccessibleMethod(method);
+                if (accessible == null) {
+                    continue;
+                }
+                try {
+                    setters.add(new ContextSetter(accessible));
+                } catch (IllegalAccessException exc) {
+                    LOGGER.debug("Can not use {}: {}", accessible, exc.getMessage());
+                }
+            }
+            return setters.toArray(ContextSetter[]::new);
+        }
+    };
+
     private AnnotationHelper() {
         // Can't be instantiated.
     }
@@ -81,65 +114,31 @@ public class AnnotationHelper {
      * if no Configurable annotations exist.
      */
     public static final <C, D> Optional<EditorMap<?>> generateEditorFromAnnotations(final Class<?> configurableClass, final C context, final D edtCtx) {
+        final ClassBindingPlan plan = ClassBindingPlan.of(configurableClass);
+        if (!plan.isAnnotated()) {
+            return Optional.empty();
+        }
         final EditorMap<?> map = new EditorMap<>();
-        boolean annotated = false;
-
-        Class<?> type = configurableClass;
-        do {
-            ConfigurableClass classAnnotation = type.getAnnotation(ConfigurableClass.class);
-            if (classAnnotation != null) {
-                annotated = true;
-                if (!classAnnotation.profilesEdit().isEmpty()) {
-                    map.setProfilesEdit(classAnnotation.profilesEdit());
-                }
-                break;
-            } else {
-                for (final Class<?> iface : type.getInterfaces()) {
-                    classAnnotation = iface.getAnnotation(ConfigurableClass.class);
-                    if (classAnnotation != null) {
-                        annotated = true;
-                        if (!classAnnotation.profilesEdit().isEmpty()) {
-                            map.setProfilesEdit(classAnnotation.profilesEdit());
-                        }
-                        break;
-                    }
-                }
-                if (annotated) {
-                    break;
-                }
-            }
-            type = type.getSuperclass();
-        } while (type != null);
-
-        final Field[] fields = FieldUtils.getAllFields(configurableClass);
-        for (final Field field : fields) {
-            final ConfigurableField annotation = field.getAnnotation(ConfigurableField.class);
-            if (annotation == null) {
-                LOGGER.debug("Field {} has no annotations.", field);
-            } else {
-                annotated = true;
-                final Class<? extends ConfigEditor> editorClass = annotation.editor();
-                try {
-                    final ConfigEditor fieldEditor = createEditor(editorClass, field, context, edtCtx);
+        if (!plan.getProfilesEdit().isEmpty()) {
+            map.setProfilesEdit(plan.getProfilesEdit());
+        }
+        for (final FieldPlan fieldPlan : plan.getFields()) {
+            final ConfigurableField annotation = fieldPlan.getAnnotation();
+            final Class<? extends ConfigEditor> editorClass = fieldPlan.getEditorClass();
+            try {
+                final ConfigEditor fieldEditor = createEditor(editorClass, fieldPlan.getField(), context, edtCtx);
 
-                    fieldEditor.setLabel(annotation.label());
-                    fieldEditor.setDescription(annotation.description());
+                fieldEditor.setLabel(annotation.label());
+                fieldEditor.setDescription(annotation.description());
 
-                    final String jsonName = jsonNameForField(field, annotation);
-                    map.addOption(field.getName(), jsonName, fieldEditor, annotation);
+                map.addOption(fieldPlan, fieldEditor);
 
-                } catch (final ReflectiveOperationException ex) {
-                    LOGGER.error("could not instantiate give editor: {}", editorClass);
-                    LOGGER.info("Exception", ex);
-                }
+            } catch (final ReflectiveOperationException ex) {
+                LOGGER.error("could not instantiate give editor: {}", editorClass);
+                LOGGER.info("Exception", ex);
             }
         }
-
-        if (!annotated) {
-            annotated = hasConfigurableConstructorAnnotation(configurableClass);
-        }
-
-        return annotated ? Optional.of(map) : Optional.empty();
+        return Optional.of(map);
     }
 
     public static <E, F, T extends ConfigEditor> T createEditor(
@@ -148,12 +147,7 @@ public class AnnotationHelper {
             final E context,
             final F edtCtx) throws ReflectiveOperationException {
         final T fieldEditor = editorForClass.getDeclaredConstructor().newInstance();
-        try {
-            MethodUtils.invokeMethod(fieldEditor, "setContexts", context, edtCtx);
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException exc) {
-            // editor needs no context.
-            LOGGER.trace("", exc);
-        }
+        injectContexts(fieldEditor, context, edtCtx);
         fieldEditor.initFor(field);
         return fieldEditor;
     }
@@ -165,21 +159,74 @@ public class AnnotationHelper {
             final F edtCtx,
             final String key) throws IllegalAccessException, ReflectiveOperationException {
         final T fieldEditor = editorForClass.getDeclaredConstructor().newInstance();
-        try {
-            MethodUtils.invokeMethod(fieldEditor, "setContexts", context, edtCtx);
-        } catch (ReflectiveOperationException exc) {
-            // editor needs no context.
-            LOGGER.trace("", exc);
-        }
+        injectContexts(fieldEditor, context, edtCtx);
         fieldEditor.initFor(field, key);
         return fieldEditor;
     }
 
-    private static String jsonNameForField(final Field field, final ConfigurableField annotation) {
-        if (annotation.jsonField().isEmpty()) {
-            return field.getName();
+    /**
+     * Pass the given contexts to the editor, if the editor implements
+     * {@link ContextAwareEditor}, or has a public setContexts method that
+     * accepts them. Editors without such a method need no context. For editor
+     * maps, the contexts are passed to the editors of all options. Context
+     * aware editors pass the contexts on to their own nested editors.
+     *
+     * @param editor The editor to pass the contexts to.
+     * @param context The context.
+     * @param edtCtx The edit context.
+     */
+    @SuppressWarnings("unchecked")
+    public static void injectContexts(final ConfigEditor<?> editor, final Object context, final Object edtCtx) {
+        if (editor instanceof ContextAwareEditor) {
+            ((ContextAwareEditor<Object, Object>) editor).setContexts(context, edtCtx);
+            return;
+        }
+        if (editor instanceof AbstractEditorMap<?, ?> editorMap) {
+            for (Item<?> item : editorMap.getOptions().values()) {
+                injectContexts(item.editor, context, edtCtx);
+            }
+        }
+        for (ContextSetter setter : CONTEXT_SETTERS.get(editor.getClass())) {
+            if (setter.accepts(context, edtCtx)) {
+                setter.invoke(editor, context, edtCtx);
+                return;
+            }
+        }
+    }
+
+    private static final class ContextSetter {
+
+        private static final MethodType GENERIC_TYPE = MethodType.methodType(void.class, Object.class, Object.class, Object.class);
+
+        private final Class<?>[] parameterTypes;
+        private final MethodHandle handle;
+
+        private ContextSetter(Method method) throws IllegalAccessException {
+            this.parameterTypes = method.getParameterTypes();
+            this.handle = MethodHandles.publicLookup().unreflect(method).asType(GENERIC_TYPE);
+        }
+
+        private boolean accepts(Object context, Object edtCtx) {
+            return accepts(parameterTypes[0], context) && accepts(parameterTypes[1], edtCtx);
+        }
+
+        private static boolean accepts(Class<?> type, Object value) {
+            if (value == null) {
+                return !type.isPrimitive();
+            }
+            return ClassUtils.isAssignable(value.getClass(), type, true);
+        }
+
+        private void invoke(Object editor, Object context, Object edtCtx) {
+            try {
+                handle.invokeExact(editor, context, edtCtx);
+            } catch (Error exc) {
+                throw exc;
+            } catch (Throwable exc) {
+                // Failing to set the context is not fatal, the editor may not need it.
+                LOGGER.trace("", exc);
+            }
         }
-        return annotation.jsonField();
     }
 
     public static Set<String> csvToReadOnlySet(String csv) {
@@ -200,86 +247,45 @@ public class AnnotationHelper {
     }
 
     public static Optional<Constructor<?>> getConfigurableConstructor(final Class<?> configurableClass) {
-        return Arrays.stream(configurableClass.getConstructors())
-                .filter(ctor -> Objects.nonNull(ctor.getAnnotation(ConfigurableConstructor.class)))
-                .findFirst();
+        return Optional.ofNullable(ClassBindingPlan.of(configurableClass).getConfigurableConstructor());
     }
 
+    @SuppressWarnings("unchecked")
     public static <T, R, E> T instantiateFrom(
             final Constructor<?> configurableConstructor,
             final JsonElement classConfig,
             final R runtimeContext,
             final E editorContext) throws ReflectiveOperationException, IllegalArgumentException, ConfigurationException {
 
-        // we'd expect to deal with a ContentConfigEditor here
-        final ContentConfigEditor<?> editor = (ContentConfigEditor<?>) ConfigEditors
-                .buildEditorFromClass(configurableConstructor.getDeclaringClass(), runtimeContext, editorContext)
-                .get();
-        editor.setConfig(classConfig);
-
-        final T instance = instantiateFrom(configurableConstructor, classConfig, editor, runtimeContext);
-        ((Configurable) instance).configure(classConfig, runtimeContext, editorContext, editor);
-
-        return instance;
-    }
-
-    private static <T, R, E> T instantiateFrom(
-            final Constructor<?> configurableConstructor,
-            final JsonElement classConfig,
-            final ContentConfigEditor<?> editor,
-            final R runtimeContext)
-            throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-
-        final Object[] initargs = buildConstructorInitargs(configurableConstructor, classConfig, editor, runtimeContext);
-        return (T) configurableConstructor.newInstance(initargs);
-    }
-
-    private static <R> Object[] buildConstructorInitargs(final Constructor<?> configurableConstructor, final JsonElement classConfig, final ContentConfigEditor<?> editor, final R runtimeContext) {
-        return Arrays.stream(configurableConstructor.getParameters())
-                .map(param -> buildConstructorInitarg(param, classConfig, editor, runtimeContext))
-                .toArray();
-    }
-
-    private static <R> Object buildConstructorInitarg(final Parameter parameter, final JsonElement classConfig, final ContentConfigEditor<?> editor, final R runtimeContext) {
+        final ClassBindingPlan plan = ClassBindingPlan.of(configurableConstructor.getDeclaringClass());
+        final ConstructorPlan constructorPlan = plan.getConstructorPlan(configurableConstructor);
+        final Object[] initargs;
         try {
-            final ConfigurableParameter annotation = parameter.getAnnotation(ConfigurableParameter.class);
-            if (annotation == null) {
-                return null;
-            }
-
-            switch (annotation.type()) {
-                case RUNTIME_CONTEXT:
-                    return runtimeContext;
-                case CLASS_CONFIG:
-                    return classConfig;
-                case JSON_FIELD: {
-                    final String jsonField = annotation.jsonField();
-                    if (Utils.isNullOrEmpty(jsonField)) {
-                        return null; // usually this is an error
-                    }
-                    return editor.getValue(jsonField);
-                }
-                default:
-                    return null;
-            }
+            // The arguments are read with the same readers as the ConfigBinder, no editor is needed for them.
+            initargs = ConfigBinder.readInitargs(constructorPlan, classConfig, runtimeContext, editorContext);
         } catch (final ConfigurationException exc) {
             throw new IllegalArgumentException(exc);
         }
+        final T instance = (T) constructorPlan.newInstance(initargs);
+        final boolean fullyConstructed = constructorPlan == plan.getConstructorPlan() && plan.isFullyConstructed();
+        if (!fullyConstructed && instance instanceof Configurable) {
+            // we'd expect to deal with a ContentConfigEditor here
+            final Optional<ConfigEditor<?>> optionalEditor = ConfigEditors.buildEditorFromClass(plan.getType(), runtimeContext, editorContext);
+            if (!optionalEditor.isPresent() || !(optionalEditor.get() instanceof ContentConfigEditor)) {
+                throw new ConfigurationException("No editor for " + plan.getType().getName());
+            }
+            final ContentConfigEditor<?> editor = (ContentConfigEditor<?>) optionalEditor.get();
+            editor.setConfig(classConfig);
+            ((Configurable<R, E>) instance).configure(classConfig, runtimeContext, editorContext, editor);
+        }
+
+        return instance;
     }
 
     public static boolean hasConfigurableConstructorParameter(final Object instance, final String jsonField) {
         if (instance == null) {
             return false;
         }
-
-        final Optional<Constructor<?>> configurableConstructor = getConfigurableConstructor(instance.getClass());
-        if (!configurableConstructor.isPresent()) {
-            return false;
-        }
-
-        return Arrays.stream(configurableConstructor.get().getParameters())
-                .map(parameter -> parameter.getAnnotation(ConfigurableParameter.class))
-                .filter(Objects::nonNull)
-                .anyMatch(config -> config.jsonField().equals(jsonField));
+        return ClassBindingPlan.of(instance.getClass()).isConstructorParameter(jsonField);
     }
 }
@@ -0,0 +1,636 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import static de.fraunhofer.iosb.ilt.configurable.Configurable.CLASS_CONFIG_EDITOR_FACTORY_METHOD_NAME;
+import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.csvToReadOnlySet;
+
+import com.google.gson.JsonElement;
+import de.fraunhofer.iosb.ilt.configurable.AbstractConfigurable;
+import de.fraunhofer.iosb.ilt.configurable.AnnotatedConfigurable;
+import de.fraunhofer.iosb.ilt.configurable.ConfigEditor;
+import de.fraunhofer.iosb.ilt.configurable.Configurable;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableParameter.ConfigurableParameterType;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.commons.lang3.reflect.MethodUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Everything needed to generate an editor for a configurable class, and to
+ * write configured values into instances of that class, as read from the
+ * annotations on the class. A plan is computed once per class, and is
+ * immutable, apart from the lazily resolved property writers.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class ClassBindingPlan {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassBindingPlan.class.getName());
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<ClassBindingPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected ClassBindingPlan computeValue(Class<?> type) {
+            return new ClassBindingPlan(type);
+        }
+    };
+
+    /**
+     * A field with a ConfigurableField annotation.
+     */
+    public static final class FieldPlan {
+
+        private final Field field;
+        private final ConfigurableField annotation;
+        private final String jsonName;
+        private final Set<String> profilesSave;
+        private final Set<String> profilesGui;
+
+        private FieldPlan(Field field, ConfigurableField annotation) {
+            this.field = field;
+            this.annotation = annotation;
+            this.jsonName = annotation.jsonField().isEmpty() ? field.getName() : annotation.jsonField();
+            this.profilesSave = csvToReadOnlySet(annotation.profilesSave());
+            this.profilesGui = csvToReadOnlySet(annotation.profilesGui());
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public String getFieldName() {
+            return field.getName();
+        }
+
+        public ConfigurableField getAnnotation() {
+            return annotation;
+        }
+
+        public String getJsonName() {
+            return jsonName;
+        }
+
+        @SuppressWarnings("rawtypes")
+        public Class<? extends ConfigEditor> getEditorClass() {
+            return annotation.editor();
+        }
+
+        public Set<String> getProfilesSave() {
+            return profilesSave;
+        }
+
+        public Set<String> getProfilesGui() {
+            return profilesGui;
+        }
+    }
+
+    /**
+     * The ways to write a value to a property of the class: the public setters
+     * for the property, and the field itself. All are resolved to
+     * {@link FieldWriter}s once.
+     */
+    public static final class PropertyWriter {
+
+        private final String fieldName;
+        private final List<FieldWriter> setters;
+        private final FieldWriter field;
+
+        private PropertyWriter(Class<?> type, String fieldName) {
+            this.fieldName = fieldName;
+            final String methodName = "set" + fieldName.substring(0, 1).toUpperCase(Locale.ROOT) + fieldName.substring(1);
+            final List<FieldWriter> found = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                if (method.getParameterCount() == 1 && method.getName().equals(methodName)) {
+                    final Method accessible = MethodUtils.getAccessibleMethod(method);
+                    if (accessible != null) {
+                        try {
+                            found.add(FieldWriters.forSetter(accessible));
+                        } catch (IllegalAccessException exc) {
+                            LOGGER.debug("Can not use setter {}: {}", accessible, exc.getMessage());
+                        }
+                    }
+                }
+            }
+            this.setters = Collections.unmodifiableList(found);
+            this.field = createFieldWriter(FieldUtils.getField(type, fieldName, true));
+        }
+
+        private static FieldWriter createFieldWriter(Field field) {
+            if (field == null) {
+                return null;
+            }
+            try {
+                return FieldWriters.forField(field);
+            } catch (IllegalAccessException exc) {
+                LOGGER.debug("Can not write field {}: {}", field, exc.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * Find the writer to use for values of the given type: the first setter
+         * that accepts the type, or the field.
+         *
+         * @param valueType The type of the value to write.
+         * @return The writer to use, or null if no setter or field accepts
+         * values of the given type.
+         */
+        public FieldWriter findWriter(Class<?> valueType) {
+            for (FieldWriter setter : setters) {
+                if (ClassUtils.isAssignable(valueType, setter.getValueType(), true)) {
+                    return setter;
+                }
+            }
+            if (field != null && ClassUtils.isAssignable(valueType, field.getValueType(), true)) {
+                return field;
+            }
+            return null;
+        }
+
+        /**
+         * Write the given value to the target, using a setter if one exists
+         * that accepts the value, or directly to the field otherwise.
+         *
+         * @param target The object to write the value to.
+         * @param value The value to write.
+         * @return true if the value was written.
+         */
+        public boolean write(Object target, Object value) {
+            final Class<?> valueType = value.getClass();
+            for (FieldWriter setter : setters) {
+                if (ClassUtils.isAssignable(valueType, setter.getValueType(), true)) {
+                    try {
+                        setter.write(target, value);
+                        return true;
+                    } catch (RuntimeException exc) {
+                        LOGGER.debug("Failed to call setter for {} on {}.", fieldName, target.getClass().getName(), exc);
+                    }
+                }
+            }
+            return writeField(target, value);
+        }
+
+        /**
+         * Write the given value directly to the field, without using a
+         * setter. Used when a setter fails.
+         *
+         * @param target The object to write the value to.
+         * @param value The value to write.
+         * @return true if the value was written.
+         */
+        public boolean writeField(Object target, Object value) {
+            if (field == null || !ClassUtils.isAssignable(value.getClass(), field.getValueType(), true)) {
+                return false;
+            }
+            field.write(target, value);
+            return true;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+    }
+
+    /**
+     * The constructor used to create instances: the public constructor with a
+     * ConfigurableConstructor annotation, or the canonical constructor of a
+     * record. The source of the value of each parameter is resolved once, and
+     * the constructor is called through a MethodHandle.
+     */
+    public static final class ConstructorPlan {
+
+        private final Constructor<?> constructor;
+        private final boolean canonical;
+        private final ConfigurableParameterType[] kinds;
+        private final String[] jsonFields;
+        private final Class<?>[] parameterTypes;
+        private final MethodHandle handle;
+
+        private ConstructorPlan(Constructor<?> constructor, boolean canonical, ConfigurableParameterType[] kinds, String[] jsonFields) {
+            this.constructor = constructor;
+            this.canonical = canonical;
+            this.kinds = kinds;
+            this.jsonFields = jsonFields;
+            this.parameterTypes = constructor.getParameterTypes();
+            this.handle = createHandle(constructor);
+        }
+
+        private static MethodHandle createHandle(Constructor<?> constructor) {
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(constructor.getDeclaringClass(), LOOKUP);
+                return lookup.unreflectConstructor(constructor)
+                        .asSpreader(Object[].class, constructor.getParameterCount())
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+            } catch (IllegalAccessException | RuntimeException exc) {
+                LOGGER.debug("Could not create handle for {}, using reflection: {}", constructor, exc.getMessage());
+                if (!constructor.trySetAccessible()) {
+                    LOGGER.debug("Could not make constructor {} accessible.", constructor);
+                }
+                return null;
+            }
+        }
+
+        public Constructor<?> getConstructor() {
+            return constructor;
+        }
+
+        /**
+         * Checks if this is the canonical constructor of a record, without a
+         * ConfigurableConstructor annotation.
+         *
+         * @return true if this is the canonical constructor of a record.
+         */
+        public boolean isCanonical() {
+            return canonical;
+        }
+
+        public int getParameterCount() {
+            return kinds.length;
+        }
+
+        /**
+         * The source of the value for the parameter with the given index.
+         *
+         * @param index The index of the parameter.
+         * @return The source of the value, or null if the parameter is not
+         * configurable.
+         */
+        public ConfigurableParameterType getParameterKind(int index) {
+            return kinds[index];
+        }
+
+        /**
+         * The json field that holds the value for the parameter with the
+         * given index, if the parameter is of the JSON_FIELD kind.
+         *
+         * @param index The index of the parameter.
+         * @return The name of the json field, or null.
+         */
+        public String getJsonField(int index) {
+            return jsonFields[index];
+        }
+
+        /**
+         * Create a new instance. Parameters that are not configurable, and
+         * have a primitive type, are passed the default value of that type
+         * when the given argument is null.
+         *
+         * @param args The arguments for the constructor.
+         * @return The new instance.
+         * @throws InvocationTargetException If the constructor throws an
+         * exception.
+         * @throws ReflectiveOperationException If the constructor can not be
+         * called.
+         */
+        public Object newInstance(Object[] args) throws ReflectiveOperationException {
+            for (int i = 0; i < args.length; i++) {
+                final Class<?> parameterType = parameterTypes[i];
+                if (parameterType.isPrimitive()) {
+                    if (args[i] == null) {
+                        if (kinds[i] != null) {
+                            throw new IllegalArgumentException("No value for primitive parameter " + i + " of " + constructor);
+                        }
+                        args[i] = Array.get(Array.newInstance(parameterType, 1), 0);
+                    } else {
+                        args[i] = FieldWriters.widen(args[i], parameterType);
+                    }
+                }
+            }
+            if (handle == null) {
+                return constructor.newInstance(args);
+            }
+            try {
+                return handle.invokeExact(args);
+            } catch (Throwable exc) {
+                throw new InvocationTargetException(exc);
+            }
+        }
+    }
+
+    private final Class<?> type;
+    private final boolean classAnnotated;
+    private final String profilesEdit;
+    private final boolean shareable;
+    private final List<FieldPlan> fields;
+    private final ConstructorPlan constructorPlan;
+    private final Set<String> constructorJsonFields;
+    private final boolean annotationConfigured;
+    private final boolean fullyConstructed;
+    private final Map<String, PropertyWriter> writers = new ConcurrentHashMap<>();
+
+    private ClassBindingPlan(Class<?> type) {
+        this.type = type;
+
+        final ConfigurableClass classAnnotation = findClassAnnotation(type);
+        classAnnotated = classAnnotation != null;
+        profilesEdit = classAnnotation == null ? "" : classAnnotation.profilesEdit();
+        final ConfigurableClass ownAnnotation = type.getAnnotation(ConfigurableClass.class);
+        shareable = ownAnnotation != null && ownAnnotation.shareable();
+
+        final List<FieldPlan> fieldPlans = new ArrayList<>();
+        for (final Field field : FieldUtils.getAllFields(type)) {
+            final ConfigurableField annotation = field.getAnnotation(ConfigurableField.class);
+            if (annotation == null) {
+                LOGGER.debug("Field {} has no annotations.", field);
+            } else {
+                fieldPlans.add(new FieldPlan(field, annotation));
+            }
+        }
+        fields = Collections.unmodifiableList(fieldPlans);
+
+        final Set<String> jsonFields = new HashSet<>();
+        constructorPlan = createConstructorPlan(type, fields, jsonFields);
+        constructorJsonFields = Collections.unmodifiableSet(jsonFields);
+        annotationConfigured = isAnnotated() && hasAnnotationConfigure(type);
+        boolean allInConstructor = constructorPlan != null;
+        for (FieldPlan fieldPlan : fields) {
+            allInConstructor = allInConstructor && constructorJsonFields.contains(fieldPlan.getFieldName());
+        }
+        fullyConstructed = allInConstructor && (annotationConfigured || !Configurable.class.isAssignableFrom(type));
+    }
+
+    private static ConstructorPlan createConstructorPlan(Class<?> type, List<FieldPlan> fields, Set<String> jsonFields) {
+        for (Constructor<?> candidate : type.getConstructors()) {
+            if (candidate.getAnnotation(ConfigurableConstructor.class) != null) {
+                return createAnnotatedPlan(candidate, jsonFields);
+            }
+        }
+        if (!type.isRecord()) {
+            return null;
+        }
+        final RecordComponent[] components = type.getRecordComponents();
+        final Class<?>[] componentTypes = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+            componentTypes[i] = components[i].getType();
+        }
+        final Constructor<?> canonical;
+        try {
+            canonical = type.getDeclaredConstructor(componentTypes);
+        } catch (NoSuchMethodException exc) {
+            LOGGER.warn("No canonical constructor found for record {}.", type.getName(), exc);
+            return null;
+        }
+        final Parameter[] parameters = canonical.getParameters();
+        final ConfigurableParameterType[] kinds = new ConfigurableParameterType[components.length];
+        final String[] names = new String[components.length];
+        final Set<String> recordFields = new HashSet<>();
+        boolean configurable = false;
+        for (int i = 0; i < components.length; i++) {
+            final ConfigurableParameter annotation = parameters[i].getAnnotation(ConfigurableParameter.class);
+            if (annotation != null) {
+                kinds[i] = annotation.type();
+                names[i] = annotation.jsonField();
+                recordFields.add(annotation.jsonField());
+                configurable = true;
+                continue;
+            }
+            for (FieldPlan fieldPlan : fields) {
+                if (fieldPlan.getFieldName().equals(components[i].getName()) && fieldPlan.getField().getDeclaringClass() == type) {
+                    kinds[i] = ConfigurableParameterType.JSON_FIELD;
+                    names[i] = fieldPlan.getJsonName();
+                    recordFields.add(fieldPlan.getJsonName());
+                    recordFields.add(fieldPlan.getFieldName());
+                    configurable = true;
+                }
+            }
+        }
+        if (!configurable) {
+            // A record without annotated components is not a configurable record.
+            return null;
+        }
+        jsonFields.addAll(recordFields);
+        return new ConstructorPlan(canonical, true, kinds, names);
+    }
+
+    private static ConstructorPlan createAnnotatedPlan(Constructor<?> constructor, Set<String> jsonFields) {
+        final Parameter[] parameters = constructor.getParameters();
+        final ConfigurableParameterType[] kinds = new ConfigurableParameterType[parameters.length];
+        final String[] names = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            final ConfigurableParameter annotation = parameters[i].getAnnotation(ConfigurableParameter.class);
+            if (annotation != null) {
+                kinds[i] = annotation.type();
+                names[i] = annotation.jsonField();
+                jsonFields.add(annotation.jsonField());
+            }
+        }
+        return new ConstructorPlan(constructor, false, kinds, names);
+    }
+
+    /**
+     * Checks if the configure method of the class is the one that configures
+     * the annotated fields, and the editor is the one generated from the
+     * annotations, so that nothing but the annotations determine how
+     * instances are configured.
+     */
+    private static boolean hasAnnotationConfigure(Class<?> type) {
+        if (!Configurable.class.isAssignableFrom(type)) {
+            return false;
+        }
+        for (Method method : type.getMethods()) {
+            if (CLASS_CONFIG_EDITOR_FACTORY_METHOD_NAME.equals(method.getName())) {
+                return false;
+            }
+        }
+        try {
+            final Class<?> configureOwner = type.getMethod("configure", JsonElement.class, Object.class, Object.class, ConfigEditor.class).getDeclaringClass();
+            if (configureOwner == AnnotatedConfigurable.class) {
+                return true;
+            }
+            if (configureOwner == AbstractConfigurable.class) {
+                return type.getMethod("getConfigEditor", Object.class, Object.class).getDeclaringClass() == AbstractConfigurable.class;
+            }
+        } catch (NoSuchMethodException exc) {
+            LOGGER.trace("No configure method on {}.", type, exc);
+        }
+        return false;
+    }
+
+    private static ConfigurableClass findClassAnnotation(Class<?> configurableClass) {
+        Class<?> type = configurableClass;
+        do {
+            ConfigurableClass classAnnotation = type.getAnnotation(ConfigurableClass.class);
+            if (classAnnotation != null) {
+                return classAnnotation;
+            }
+            for (final Class<?> iface : type.getInterfaces()) {
+                classAnnotation = iface.getAnnotation(ConfigurableClass.class);
+                if (classAnnotation != null) {
+                    return classAnnotation;
+                }
+            }
+            type = type.getSuperclass();
+        } while (type != null);
+        return null;
+    }
+
+    /**
+     * Get the plan for the given class.
+     *
+     * @param type The class to get the plan for.
+     * @return The plan for the given class.
+     */
+    public static ClassBindingPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Checks if the class has any of the Configurable annotations: a
+     * ConfigurableClass annotation on the class, a super class or interface,
+     * ConfigurableField annotations, or a ConfigurableConstructor.
+     *
+     * @return true if the class is annotated.
+     */
+    public boolean isAnnotated() {
+        return classAnnotated || !fields.isEmpty() || (constructorPlan != null && !constructorPlan.isCanonical());
+    }
+
+    /**
+     * The profilesEdit of the ConfigurableClass annotation.
+     *
+     * @return The profilesEdit csv, empty if not set.
+     */
+    public String getProfilesEdit() {
+        return profilesEdit;
+    }
+
+    /**
+     * The shareable flag of the ConfigurableClass annotation on the class
+     * itself. Annotations on super classes or interfaces are not used, since
+     * they can not promise that the class is immutable.
+     *
+     * @return true if instances with equal configurations can be shared.
+     */
+    public boolean isShareable() {
+        return shareable;
+    }
+
+    /**
+     * The fields with a ConfigurableField annotation, in the order of
+     * {@link FieldUtils#getAllFields(java.lang.Class)}.
+     *
+     * @return The annotated fields.
+     */
+    public List<FieldPlan> getFields() {
+        return fields;
+    }
+
+    /**
+     * The public constructor with a ConfigurableConstructor annotation, or the
+     * canonical constructor if the class is a record.
+     *
+     * @return The configurable constructor, or null if there is none.
+     */
+    public Constructor<?> getConfigurableConstructor() {
+        return constructorPlan == null ? null : constructorPlan.getConstructor();
+    }
+
+    /**
+     * The plan for calling the configurable constructor.
+     *
+     * @return The plan for the configurable constructor, or null if there is
+     * none.
+     */
+    public ConstructorPlan getConstructorPlan() {
+        return constructorPlan;
+    }
+
+    /**
+     * The plan for calling the given constructor of the class. This is the
+     * plan of the configurable constructor if that is the given constructor,
+     * otherwise a plan is created from the ConfigurableParameter annotations
+     * of the given constructor.
+     *
+     * @param constructor The constructor to get the plan for.
+     * @return The plan for the given constructor.
+     */
+    public ConstructorPlan getConstructorPlan(Constructor<?> constructor) {
+        if (constructorPlan != null && constructorPlan.getConstructor().equals(constructor)) {
+            return constructorPlan;
+        }
+        return createAnnotatedPlan(constructor, new HashSet<>());
+    }
+
+    /**
+     * Checks if the class is Configurable, and is configured using only its
+     * annotations: its configure method and its editor are not overridden.
+     *
+     * @return true if the annotations fully describe the configuration.
+     */
+    public boolean isAnnotationConfigured() {
+        return annotationConfigured;
+    }
+
+    /**
+     * Checks if all annotated fields are passed to the configurable
+     * constructor, so nothing is left to configure after construction. This
+     * is the case for records, and for Configurable classes that do not
+     * override the configure method or the editor generated from the
+     * annotations.
+     *
+     * @return true if all annotated fields are constructor parameters.
+     */
+    public boolean isFullyConstructed() {
+        return fullyConstructed;
+    }
+
+    /**
+     * Checks if the configurable constructor has a parameter for the given
+     * json field.
+     *
+     * @param jsonField The json field to check.
+     * @return true if the value of the field is passed to the constructor.
+     */
+    public boolean isConstructorParameter(String jsonField) {
+        return constructorJsonFields.contains(jsonField);
+    }
+
+    /**
+     * Get the writer for the property with the given field name.
+     *
+     * @param fieldName The name of the field.
+     * @return The writer for the property.
+     */
+    public PropertyWriter getWriter(String fieldName) {
+        return writers.computeIfAbsent(fieldName, name -> new PropertyWriter(type, name));
+    }
+}
@@ -0,0 +1,632 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import de.fraunhofer.iosb.ilt.configurable.AbstractConfigurable;
+import de.fraunhofer.iosb.ilt.configurable.AnnotatedConfigurable;
+import de.fraunhofer.iosb.ilt.configurable.Configurable;
+import de.fraunhofer.iosb.ilt.configurable.ConfigurableFactory;
+import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.Utils;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.ConstructorPlan;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.FieldPlan;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.PropertyWriter;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableParameter.ConfigurableParameterType;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Configures objects directly from their JSON configuration, without creating
+ * any editors. The annotations on the classes are used the same way the
+ * editors use them, so the same defaults apply, optional fields that are not
+ * in the configuration get their default value, and merged fields get the
+ * configuration of their parent. The editors remain the way to edit a
+ * configuration in a GUI.
+ * <p>
+ * Classes that implement {@link AnnotatedConfigurable}, or extend
+ * {@link AbstractConfigurable}, without overriding the configure method, are
+ * configured directly. Other {@link Configurable} classes are configured by
+ * calling their configure method. Classes that do not implement Configurable
+ * are only instantiated, as in the editors.
+ * <p>
+ * Configurations can also be read from a {@link JsonReader}, in which case
+ * instances are configured while the tokens are read, without first building
+ * the tree of the whole configuration. Only the parts of the configuration
+ * that are needed as a whole are buffered: the configuration of a class with
+ * a merged field, a custom configure method, or a constructor parameter that
+ * takes the whole configuration, and the fields of a merged subclass
+ * configuration that come before the class name.
+ * <p>
+ * Classes with a configurable constructor, and records, are created with a
+ * single call to the constructor. When all configured fields are passed to
+ * the constructor, the instance is not configured afterwards.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class ConfigBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigBinder.class.getName());
+
+    private static final ClassValue<ClassBinding> BINDINGS = new ClassValue<>() {
+        @Override
+        protected ClassBinding computeValue(Class<?> type) {
+            return new ClassBinding(type);
+        }
+    };
+
+    /**
+     * The number of batches per available processor that bindAll splits the
+     * elements into.
+     */
+    private static final int BATCHES_PER_PROCESSOR = 4;
+
+    /**
+     * The readers for elements of bindAll, by interface.
+     */
+    private static final ClassValue<ValueReader> SUBCLASS_READERS = new ClassValue<>() {
+        @Override
+        protected ValueReader computeValue(Class<?> iface) {
+            return ValueReaders.forSubclass(iface);
+        }
+    };
+
+    /**
+     * One annotated field of a class, with the reader for its value.
+     */
+    private static final class FieldBinding {
+
+        private final String fieldName;
+        private final String jsonName;
+        private final boolean optional;
+        private final boolean merge;
+        private final ValueReader reader;
+
+        private FieldBinding(FieldPlan fieldPlan) {
+            this.fieldName = fieldPlan.getFieldName();
+            this.jsonName = fieldPlan.getJsonName();
+            this.optional = fieldPlan.getAnnotation().optional();
+            this.merge = fieldPlan.getAnnotation().merge();
+            this.reader = ValueReaders.forEditor(fieldPlan.getEditorClass(), fieldPlan.getField());
+        }
+
+        private JsonElement getItemConfig(JsonElement config, JsonObject configObj) {
+            if (configObj == null) {
+                return null;
+            }
+            if (merge) {
+                return config;
+            }
+            return configObj.get(jsonName);
+        }
+    }
+
+    /**
+     * Everything needed to configure instances of one class.
+     */
+    private static final class ClassBinding {
+
+        private final ClassBindingPlan plan;
+        private final boolean direct;
+        private final List<FieldBinding> fields;
+        private final List<PropertyWriter> writers;
+        private final Map<String, FieldBinding> fieldsByJsonName;
+        private final Map<String, Integer> indexByJsonName;
+        /**
+         * For each parameter of the configurable constructor, the index of
+         * the field that holds its value, or -1.
+         */
+        private final int[] parameterFields;
+        /**
+         * Flag indicating all configuration is passed to the constructor, and
+         * instances do not need to be configured after construction.
+         */
+        private final boolean constructorOnly;
+        /**
+         * Flag indicating the instances can be configured while streaming:
+         * they are configured directly, have no merged fields, no
+         * constructor parameter that takes the whole configuration, and are
+         * not shared, since shared instances are found by their
+         * configuration.
+         */
+        private final boolean streamable;
+
+        private ClassBinding(Class<?> type) {
+            plan = ClassBindingPlan.of(type);
+            direct = plan.isAnnotationConfigured();
+            final List<FieldBinding> fieldList = new ArrayList<>();
+            final List<PropertyWriter> writerList = new ArrayList<>();
+            final Map<String, FieldBinding> byJsonName = new HashMap<>();
+            final Map<String, Integer> indexes = new HashMap<>();
+            boolean hasMerge = false;
+            for (FieldPlan fieldPlan : plan.getFields()) {
+                final FieldBinding field = new FieldBinding(fieldPlan);
+                final boolean writable = !plan.isConstructorParameter(field.fieldName);
+                indexes.putIfAbsent(field.jsonName, fieldList.size());
+                fieldList.add(field);
+                writerList.add(writable ? plan.getWriter(field.fieldName) : null);
+                byJsonName.putIfAbsent(field.jsonName, field);
+                hasMerge = hasMerge || field.merge;
+            }
+            fields = Collections.unmodifiableList(fieldList);
+            writers = Collections.unmodifiableList(writerList);
+            fieldsByJsonName = Collections.unmodifiableMap(byJsonName);
+            indexByJsonName = Collections.unmodifiableMap(indexes);
+
+            final ConstructorPlan constructorPlan = plan.getConstructorPlan();
+            boolean wholeConfig = false;
+            if (constructorPlan == null) {
+                parameterFields = new int[0];
+            } else {
+                parameterFields = new int[constructorPlan.getParameterCount()];
+                for (int i = 0; i < parameterFields.length; i++) {
+                    final Integer index = indexes.get(constructorPlan.getJsonField(i));
+                    parameterFields[i] = index == null ? -1 : index;
+                    wholeConfig = wholeConfig || constructorPlan.getParameterKind(i) == ConfigurableParameterType.CLASS_CONFIG;
+                }
+            }
+            constructorOnly = plan.isFullyConstructed();
+            streamable = (direct || constructorOnly) && !hasMerge && !wholeConfig && !plan.isShareable();
+        }
+
+        /**
+         * Does what AbstractEditorMap.setConfig followed by setContentsOn
+         * does.
+         */
+        private void setContentsOn(Object target, JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+            final JsonObject configObj = config != null && config.isJsonObject() ? config.getAsJsonObject() : null;
+            for (int i = 0; i < fields.size(); i++) {
+                final PropertyWriter writer = writers.get(i);
+                if (writer == null) {
+                    continue;
+                }
+                final FieldBinding field = fields.get(i);
+                final JsonElement itemConfig = field.getItemConfig(config, configObj);
+                final Object value;
+                if (itemConfig != null || !field.optional) {
+                    value = field.reader.read(itemConfig, context, edtCtx);
+                } else {
+                    value = field.reader.readDefault(context, edtCtx);
+                }
+                if (value == null) {
+                    continue;
+                }
+                if (!writer.write(target, value)) {
+                    LOGGER.warn("Could not set field {} on {}.", field.fieldName, target.getClass().getName());
+                }
+            }
+        }
+
+        /**
+         * The streaming version of creating an instance and calling
+         * setContentsOn. The reader is positioned inside the configuration
+         * object, the fields that were already read are given as buffered.
+         * Reads up to and including the end of the object. The instance is
+         * created, and values are written in the same order as
+         * setContentsOn does, once the whole object is read.
+         */
+        private Object readInstance(JsonObject buffered, JsonReader in, Object context, Object edtCtx) throws IOException, ConfigurationException {
+            final Object[] values = new Object[fields.size()];
+            final boolean[] present = new boolean[fields.size()];
+            if (buffered != null) {
+                for (Map.Entry<String, JsonElement> entry : buffered.entrySet()) {
+                    final Integer index = indexByJsonName.get(entry.getKey());
+                    if (index != null) {
+                        values[index] = fields.get(index).reader.read(entry.getValue(), context, edtCtx);
+                        present[index] = true;
+                    }
+                }
+            }
+            while (in.hasNext()) {
+                final Integer index = indexByJsonName.get(in.nextName());
+                if (index == null) {
+                    in.skipValue();
+                    continue;
+                }
+                values[index] = fields.get(index).reader.readStream(in, context, edtCtx);
+                present[index] = true;
+            }
+            in.endObject();
+            final Object target;
+            final ConstructorPlan constructorPlan = plan.getConstructorPlan();
+            if (constructorPlan == null) {
+                target = newInstance(plan.getType());
+            } else {
+                final Object[] initargs = new Object[parameterFields.length];
+                for (int i = 0; i < initargs.length; i++) {
+                    final ConfigurableParameterType kind = constructorPlan.getParameterKind(i);
+                    if (kind == ConfigurableParameterType.RUNTIME_CONTEXT) {
+                        initargs[i] = context;
+                    } else if (kind == ConfigurableParameterType.JSON_FIELD && !Utils.isNullOrEmpty(constructorPlan.getJsonField(i))) {
+                        final int index = parameterFields[i];
+                        if (index < 0) {
+                            throw noFieldFor(constructorPlan.getJsonField(i));
+                        }
+                        initargs[i] = present[index] ? values[index] : fields.get(index).reader.read(null, context, edtCtx);
+                    }
+                }
+                target = construct(constructorPlan, initargs);
+                if (constructorOnly) {
+                    return target;
+                }
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                final PropertyWriter writer = writers.get(i);
+                if (writer == null) {
+                    continue;
+                }
+                final FieldBinding field = fields.get(i);
+                Object value = values[i];
+                if (!present[i]) {
+                    value = field.optional ? field.reader.readDefault(context, edtCtx) : field.reader.read(null, context, edtCtx);
+                }
+                if (value == null) {
+                    continue;
+                }
+                if (!writer.write(target, value)) {
+                    LOGGER.warn("Could not set field {} on {}.", field.fieldName, target.getClass().getName());
+                }
+            }
+            return target;
+        }
+
+        /**
+         * Does what AbstractEditorMap.getValue(name) does, after setConfig.
+         */
+        private Object readValue(String jsonName, JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+            final FieldBinding field = fieldsByJsonName.get(jsonName);
+            if (field == null) {
+                throw noFieldFor(jsonName);
+            }
+            final JsonObject configObj = config != null && config.isJsonObject() ? config.getAsJsonObject() : null;
+            return field.reader.read(field.getItemConfig(config, configObj), context, edtCtx);
+        }
+
+        private ConfigurationException noFieldFor(String jsonName) {
+            return new ConfigurationException("No field for constructor parameter " + jsonName + " in " + plan.getType().getName());
+        }
+    }
+
+    private ConfigBinder() {
+        // Utility class.
+    }
+
+    /**
+     * Create and configure an instance of the given class, from the given
+     * configuration. The result is the same as that of an EditorClass for
+     * the given class, but no editors are created.
+     *
+     * @param <T> The type of the class.
+     * @param <C> The class type that provides context at runtime.
+     * @param type The class to create an instance of.
+     * @param config The configuration of the instance.
+     * @param context The runtime context.
+     * @return The configured instance.
+     * @throws ConfigurationException If the configuration can not be loaded.
+     */
+    public static <T, C> T bind(Class<T> type, JsonElement config, C context) throws ConfigurationException {
+        return type.cast(instantiateClass(type, config, context, null));
+    }
+
+    /**
+     * Create and configure an instance of the given class, reading the
+     * configuration from the given reader. The reader must be positioned at
+     * the configuration of the instance, and is positioned after it when this
+     * method returns.
+     *
+     * @param <T> The type of the class.
+     * @param <C> The class type that provides context at runtime.
+     * @param type The class to create an instance of.
+     * @param in The reader to read the configuration from.
+     * @param context The runtime context.
+     * @return The configured instance.
+     * @throws ConfigurationException If the configuration can not be loaded.
+     * @throws IOException If reading fails.
+     */
+    public static <T, C> T bind(Class<T> type, JsonReader in, C context) throws ConfigurationException, IOException {
+        return type.cast(instantiateClass(type, in, context, null));
+    }
+
+    /**
+     * Create and configure instances for all elements of the given array, in
+     * parallel on the common ForkJoinPool.
+     *
+     * @param <T> The type of the instances.
+     * @param <C> The class type that provides context at runtime.
+     * @param iface The interface or superclass of the instances.
+     * @param configs The configurations of the instances.
+     * @param context The runtime context.
+     * @return The configured instances, in the order of the array.
+     * @throws ConfigurationException If any of the elements can not be
+     * loaded.
+     * @see #bindAll(java.lang.Class, com.google.gson.JsonArray,
+     * java.lang.Object, java.util.concurrent.Executor)
+     */
+    public static <T, C> List<T> bindAll(Class<T> iface, JsonArray configs, C context) throws ConfigurationException {
+        return bindAll(iface, configs, context, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create and configure instances for all elements of the given array, in
+     * parallel on the given executor. Each element is configured the same way
+     * an item of an EditorList of EditorSubclass editors for the given
+     * interface is: it has a className and a classConfig. Elements that are
+     * not objects, or that have no className, result in null.
+     * <p>
+     * The elements are independent, and all are attempted. If any fail, the
+     * exception lists all failed elements, and has the exceptions of the
+     * elements as suppressed exceptions.
+     *
+     * @param <T> The type of the instances.
+     * @param <C> The class type that provides context at runtime.
+     * @param iface The interface or superclass of the instances.
+     * @param configs The configurations of the instances.
+     * @param context The runtime context.
+     * @param executor The executor to configure the elements on.
+     * @return The configured instances, in the order of the array.
+     * @throws ConfigurationException If any of the elements can not be
+     * loaded.
+     */
+    public static <T, C> List<T> bindAll(Class<T> iface, JsonArray configs, C context, Executor executor) throws ConfigurationException {
+        final ValueReader reader = SUBCLASS_READERS.get(iface);
+        final int count = configs.size();
+        final Object[] results = new Object[count];
+        final Exception[] failures = new Exception[count];
+        // Elements are handed out in contiguous batches, a few per processor, to limit the overhead per task.
+        final int batchCount = Math.min(count, BATCHES_PER_PROCESSOR * Runtime.getRuntime().availableProcessors());
+        final CompletableFuture<?>[] tasks = new CompletableFuture<?>[batchCount];
+        for (int batch = 0; batch < batchCount; batch++) {
+            final int start = (int) ((long) count * batch / batchCount);
+            final int end = (int) ((long) count * (batch + 1) / batchCount);
+            tasks[batch] = CompletableFuture.runAsync(() -> {
+                for (int index = start; index < end; index++) {
+                    try {
+                        results[index] = iface.cast(reader.read(configs.get(index), context, null));
+                    } catch (ConfigurationException | RuntimeException exc) {
+                        failures[index] = exc;
+                    }
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new ConfigurationException(exc.getCause());
+        }
+        final StringBuilder message = new StringBuilder();
+        final List<Exception> failed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (failures[i] != null) {
+                failed.add(failures[i]);
+                message.append("\n  element ").append(i).append(": ").append(failures[i]);
+            }
+        }
+        if (!failed.isEmpty()) {
+            final ConfigurationException report = new ConfigurationException("Failed to load " + failed.size() + " of " + count + " elements:" + message);
+            failed.forEach(report::addSuppressed);
+            throw report;
+        }
+        final List<T> list = new ArrayList<>(count);
+        for (Object result : results) {
+            list.add(iface.cast(result));
+        }
+        return list;
+    }
+
+    /**
+     * Find the ConfigurableFactory in the given contexts, the same way the
+     * editors do.
+     *
+     * @return The factory, or null if neither context is a factory.
+     */
+    static ConfigurableFactory findFactory(Object context, Object edtCtx) {
+        if (edtCtx instanceof ConfigurableFactory factory) {
+            return factory;
+        }
+        if (context instanceof ConfigurableFactory factory) {
+            return factory;
+        }
+        return null;
+    }
+
+    /**
+     * Create an instance of the given class, the way EditorClass does.
+     * Instances of shareable classes are shared by equal configurations.
+     */
+    static Object instantiateClass(Class<?> type, JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+        return SharedInstances.intern(type, config, context, edtCtx, () -> createClass(type, config, context, edtCtx));
+    }
+
+    private static Object createClass(Class<?> type, JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+        if (ClassBindingPlan.of(type).getConstructorPlan() != null) {
+            return instantiateFrom(type, config, context, edtCtx);
+        }
+        final ConfigurableFactory factory = findFactory(context, edtCtx);
+        if (factory != null) {
+            return factory.instantiate(type, config, context, edtCtx);
+        }
+        return instantiateDefault(type, config, context, edtCtx);
+    }
+
+    /**
+     * Create an instance of the given class, selected by the given name, the
+     * way EditorSubclass does. Instances of shareable classes are shared by
+     * equal configurations.
+     */
+    static Object instantiateSubclass(Class<?> type, String name, JsonElement config, Object context, Object edtCtx, ConfigurableFactory factory) throws ConfigurationException {
+        return SharedInstances.intern(type, config, context, edtCtx, () -> createSubclass(type, name, config, context, edtCtx, factory));
+    }
+
+    private static Object createSubclass(Class<?> type, String name, JsonElement config, Object context, Object edtCtx, ConfigurableFactory factory) throws ConfigurationException {
+        if (ClassBindingPlan.of(type).getConstructorPlan() != null) {
+            return instantiateFrom(type, config, context, edtCtx);
+        }
+        if (factory != null) {
+            return factory.instantiate(name, config, context, edtCtx);
+        }
+        return instantiateDefault(type, config, context, edtCtx);
+    }
+
+    /**
+     * The streaming version of instantiateClass. The reader is positioned at
+     * the configuration of the instance.
+     */
+    static Object instantiateClass(Class<?> type, JsonReader in, Object context, Object edtCtx) throws IOException, ConfigurationException {
+        final ConfigurableFactory factory = findFactory(context, edtCtx);
+        if (factory != null || !BINDINGS.get(type).streamable || in.peek() != JsonToken.BEGIN_OBJECT) {
+            return instantiateClass(type, JsonParser.parseReader(in), context, edtCtx);
+        }
+        return streamInstance(type, in, context, edtCtx);
+    }
+
+    /**
+     * The streaming version of instantiateSubclass. The reader is positioned
+     * at the configuration of the instance.
+     */
+    static Object instantiateSubclass(Class<?> type, String name, JsonReader in, Object context, Object edtCtx, ConfigurableFactory factory) throws IOException, ConfigurationException {
+        if (factory != null || !BINDINGS.get(type).streamable || in.peek() != JsonToken.BEGIN_OBJECT) {
+            return instantiateSubclass(type, name, JsonParser.parseReader(in), context, edtCtx, factory);
+        }
+        return streamInstance(type, in, context, edtCtx);
+    }
+
+    /**
+     * Create an instance of the given class, selected by the given name, for
+     * an EditorSubclass that merges the class name into the configuration.
+     * The reader is positioned inside the configuration object, after the
+     * class name. The fields before the class name are given as buffered.
+     */
+    static Object instantiateSubclassMerged(Class<?> type, String name, JsonObject buffered, JsonReader in, Object context, Object edtCtx, ConfigurableFactory factory) throws IOException, ConfigurationException {
+        if (factory != null || !BINDINGS.get(type).streamable) {
+            while (in.hasNext()) {
+                buffered.add(in.nextName(), JsonParser.parseReader(in));
+            }
+            in.endObject();
+            return instantiateSubclass(type, name, buffered, context, edtCtx, factory);
+        }
+        return BINDINGS.get(type).readInstance(buffered, in, context, edtCtx);
+    }
+
+    private static Object streamInstance(Class<?> type, JsonReader in, Object context, Object edtCtx) throws IOException, ConfigurationException {
+        in.beginObject();
+        return BINDINGS.get(type).readInstance(null, in, context, edtCtx);
+    }
+
+    private static Object newInstance(Class<?> type) throws ConfigurationException {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | SecurityException exc) {
+            throw new ConfigurationException(exc);
+        }
+    }
+
+    private static Object instantiateDefault(Class<?> type, JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+        final Object instance = newInstance(type);
+        configure(instance, config, context, edtCtx);
+        return instance;
+    }
+
+    private static Object construct(ConstructorPlan constructorPlan, Object[] initargs) throws ConfigurationException {
+        try {
+            return constructorPlan.newInstance(initargs);
+        } catch (ReflectiveOperationException | IllegalArgumentException exc) {
+            throw new ConfigurationException(exc);
+        }
+    }
+
+    private static Object instantiateFrom(Class<?> type, JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+        final ClassBinding binding = BINDINGS.get(type);
+        final ConstructorPlan constructorPlan = binding.plan.getConstructorPlan();
+        final Object instance = construct(constructorPlan, readInitargs(constructorPlan, config, context, edtCtx));
+        if (!binding.constructorOnly) {
+            configure(instance, config, context, edtCtx);
+        }
+        return instance;
+    }
+
+    /**
+     * Read the arguments for the given constructor from the given
+     * configuration, the way the editor of the class would, without creating
+     * any editors.
+     *
+     * @param constructorPlan The constructor to read the arguments for.
+     * @param config The configuration of the instance.
+     * @param context The runtime context.
+     * @param edtCtx The edit context.
+     * @return The arguments for the constructor.
+     * @throws ConfigurationException If a value can not be read, or a
+     * parameter has no matching field.
+     */
+    static Object[] readInitargs(ConstructorPlan constructorPlan, JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+        final ClassBinding binding = BINDINGS.get(constructorPlan.getConstructor().getDeclaringClass());
+        final Object[] initargs = new Object[constructorPlan.getParameterCount()];
+        for (int i = 0; i < initargs.length; i++) {
+            final ConfigurableParameterType kind = constructorPlan.getParameterKind(i);
+            if (kind == null) {
+                continue;
+            }
+            switch (kind) {
+                case RUNTIME_CONTEXT:
+                    initargs[i] = context;
+                    break;
+                case CLASS_CONFIG:
+                    initargs[i] = config;
+                    break;
+                case JSON_FIELD:
+                    if (!Utils.isNullOrEmpty(constructorPlan.getJsonField(i))) {
+                        initargs[i] = binding.readValue(constructorPlan.getJsonField(i), config, context, edtCtx);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return initargs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void configure(Object instance, JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+        if (!(instance instanceof Configurable)) {
+            return;
+        }
+        final ClassBinding binding = BINDINGS.get(instance.getClass());
+        if (binding.direct) {
+            binding.setContentsOn(instance, config, context, edtCtx);
+        } else {
+            ((Configurable<Object, Object>) instance).configure(config, context, edtCtx, null);
+        }
+    }
+}
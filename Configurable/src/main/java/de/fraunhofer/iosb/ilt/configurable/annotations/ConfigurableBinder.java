@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.editor.AbstractEditorMap;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorMap;
+
+/**
+ * Builds the editor for one configurable class, and copies the values of that
+ * editor into instances of the class, without reflection. Binders are
+ * generated at compile time by the BinderProcessor, for each concrete class
+ * with ConfigurableField annotations, and found using
+ * {@link ConfigurableBinders}.
+ *
+ * @author Hylke van der Schaaf
+ * @param <T> The type of the configurable class.
+ */
+public interface ConfigurableBinder<T> {
+
+    /**
+     * The suffix that is appended to the binary name of a class, to get the
+     * binary name of its binder.
+     */
+    public static final String CLASS_NAME_SUFFIX = "$$ConfigurableBinder";
+
+    /**
+     * The class this binder is for.
+     *
+     * @return The class this binder is for.
+     */
+    public Class<T> getType();
+
+    /**
+     * Build the editor for the class. The editor is equal to the one generated
+     * by
+     * {@link AnnotationHelper#generateEditorFromAnnotations(java.lang.Class, java.lang.Object, java.lang.Object)}.
+     *
+     * @param <C> The class type that provides context at runtime.
+     * @param <D> The class type that provides context while editing.
+     * @param context The instance that provides context at runtime.
+     * @param edtCtx The instance that provides context while editing.
+     * @return The editor for the class.
+     */
+    public <C, D> EditorMap<?> createEditor(C context, D edtCtx);
+
+    /**
+     * Copy the values of the given editor into the fields of the given
+     * target, using the setters where they exist.
+     *
+     * @param editor The editor to take the values from, created by
+     * {@link #createEditor(java.lang.Object, java.lang.Object)}.
+     * @param target The object to copy the values into.
+     * @throws ConfigurationException If a value could not be loaded.
+     */
+    public void setContentsOn(AbstractEditorMap<?, ?> editor, T target) throws ConfigurationException;
+}
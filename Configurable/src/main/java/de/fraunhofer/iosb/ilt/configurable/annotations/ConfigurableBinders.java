@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the generated {@link ConfigurableBinder} of configurable classes. The
+ * binder of a class is loaded once, and cached. Binders that do not match the
+ * annotated fields of the class at runtime, for instance because a superclass
+ * in another jar changed, are not used. Generated binders can be
+ * disabled by setting the system property {@value #PROPERTY_ENABLED} to false,
+ * in which case the reflection based {@link AnnotationHelper} is always used.
+ * <p>
+ * For classes without a compile-time generated binder, binders can be
+ * generated at runtime by {@link RuntimeBinders}. This is disabled by default,
+ * and can be enabled by setting the system property
+ * {@value #PROPERTY_RUNTIME_GENERATION} to true, or by calling
+ * {@link #setRuntimeGeneration(boolean)}.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class ConfigurableBinders {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurableBinders.class.getName());
+
+    /**
+     * The system property that can be used to disable generated binders.
+     */
+    public static final String PROPERTY_ENABLED = "configurable.binders.enabled";
+    /**
+     * The system property that can be used to enable runtime generated
+     * binders.
+     */
+    public static final String PROPERTY_RUNTIME_GENERATION = "configurable.binders.runtime";
+
+    private static final ClassValue<Optional<ConfigurableBinder<?>>> BINDERS = new ClassValue<>() {
+        @Override
+        protected Optional<ConfigurableBinder<?>> computeValue(Class<?> type) {
+            return Optional.ofNullable(loadBinder(type));
+        }
+    };
+
+    private static boolean enabled = !"false".equalsIgnoreCase(System.getProperty(PROPERTY_ENABLED));
+    private static boolean runtimeGeneration = Boolean.getBoolean(PROPERTY_RUNTIME_GENERATION);
+
+    private ConfigurableBinders() {
+        // Utility class.
+    }
+
+    /**
+     * Checks if generated binders are used.
+     *
+     * @return true if generated binders are used.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the use of generated binders.
+     *
+     * @param enabled Flag indicating generated binders should be used.
+     */
+    public static void setEnabled(boolean enabled) {
+        ConfigurableBinders.enabled = enabled;
+    }
+
+    /**
+     * Checks if binders are generated at runtime, for classes that have no
+     * compile-time generated binder.
+     *
+     * @return true if binders are generated at runtime.
+     */
+    public static boolean isRuntimeGeneration() {
+        return runtimeGeneration;
+    }
+
+    /**
+     * Enable or disable generating binders at runtime, for classes that have
+     * no compile-time generated binder.
+     *
+     * @param runtimeGeneration Flag indicating binders should be generated at
+     * runtime.
+     */
+    public static void setRuntimeGeneration(boolean runtimeGeneration) {
+        ConfigurableBinders.runtimeGeneration = runtimeGeneration;
+    }
+
+    /**
+     * Get the generated binder of the given class. If the class has no
+     * compile-time generated binder, and runtime generation is enabled, a
+     * binder is generated.
+     *
+     * @param <T> The type of the class.
+     * @param type The class to get the binder for.
+     * @return The binder, or null if the class has no binder, or binders are
+     * disabled.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ConfigurableBinder<T> getBinder(Class<T> type) {
+        if (!enabled) {
+            return null;
+        }
+        final ConfigurableBinder<T> binder = (ConfigurableBinder<T>) BINDERS.get(type).orElse(null);
+        if (binder == null && runtimeGeneration) {
+            return RuntimeBinders.getBinder(type);
+        }
+        return binder;
+    }
+
+    private static ConfigurableBinder<?> loadBinder(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface()) {
+            return null;
+        }
+        final String binderName = type.getName() + ConfigurableBinder.CLASS_NAME_SUFFIX;
+        final ClassLoader loader = type.getClassLoader() == null ? ConfigurableBinders.class.getClassLoader() : type.getClassLoader();
+        if (loader.getResource(binderName.replace('.', '/') + ".class") == null) {
+            return null;
+        }
+        try {
+            final Class<?> binderClass = Class.forName(binderName, true, loader);
+            if (!ConfigurableBinder.class.isAssignableFrom(binderClass)) {
+                LOGGER.warn("Class {} is not a ConfigurableBinder.", binderName);
+                return null;
+            }
+            final ConfigurableBinder<?> binder = (ConfigurableBinder<?>) binderClass.getDeclaredConstructor().newInstance();
+            if (binder.getType() != type) {
+                LOGGER.warn("Binder {} is not for {}.", binderName, type.getName());
+                return null;
+            }
+            if (binder instanceof AbstractConfigurableBinder<?> generated && !generated.isUpToDate()) {
+                LOGGER.warn("Binder {} does not bind all annotated fields of {}, using reflection. Is a superclass from another library newer than the binder?", binderName, type.getName());
+                return null;
+            }
+            LOGGER.debug("Using generated binder for {}.", type.getName());
+            return binder;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException exc) {
+            final Throwable cause = exc.getCause() == null ? exc : exc.getCause();
+            LOGGER.warn("Failed to load binder for {}, using reflection: {}", type.getName(), cause.toString());
+            LOGGER.debug("Exception:", exc);
+            return null;
+        }
+    }
+}
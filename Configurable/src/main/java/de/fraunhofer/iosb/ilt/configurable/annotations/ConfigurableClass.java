@@ -52,4 +52,15 @@ public @interface ConfigurableClass {
      */
     String profilesEdit() default "";
 
+    /**
+     * If set to true, instances of this class are immutable after they are
+     * created, and instances created from equal configurations can be
+     * shared. EditorSubclass, EditorClass and ConfigBinder then return the
+     * same instance for equal configurations, as long as that instance is
+     * in use. Only used when set on the class itself, not when inherited.
+     *
+     * @return true if instances with equal configurations can be shared.
+     */
+    boolean shareable() default false;
+
 }
@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import com.google.gson.JsonElement;
+import de.fraunhofer.iosb.ilt.configurable.ConfigEditor;
+import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.FieldPlan;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorClass;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorClass.EdOptsClass;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorList;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorList.EdOptsList;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorMap;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorSubclass;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorSubclass.EdOptsSubclass;
+import de.fraunhofer.iosb.ilt.configurable.editor.SubclassCatalog;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An immutable description of the editor of a configurable class: its fields,
+ * their editors, and the options, defaults and constraints of those editors as
+ * given by their annotations. A model is created once per class, and can be
+ * shared between threads.
+ * <p>
+ * Editors hold the state of one use: the configuration being edited, the
+ * active profile and the GUI. They are created from the model using
+ * {@link #createEditor(java.lang.Object, java.lang.Object)}, as copies of a
+ * shared prototype. Configurations can also be bound against the model
+ * directly, from any number of threads at the same time, using
+ * {@link #bind(com.google.gson.JsonElement, java.lang.Object)}.
+ *
+ * @author Hylke van der Schaaf
+ * @param <T> The configurable class.
+ */
+public final class EditorModel<T> {
+
+
+    private static final ClassValue<EditorModel<?>> MODELS = new ClassValue<>() {
+        @Override
+        protected EditorModel<?> computeValue(Class<?> type) {
+            return new EditorModel<>(type);
+        }
+    };
+
+    /**
+     * The description of one configurable field.
+     */
+    public static final class FieldModel {
+
+        private final FieldPlan plan;
+        private final List<Annotation> options;
+        @SuppressWarnings("rawtypes")
+        private final Class<? extends ConfigEditor> valueEditorClass;
+
+        private FieldModel(FieldPlan plan) {
+            this.plan = plan;
+            final List<Annotation> annotations = new ArrayList<>();
+            for (Annotation annotation : plan.getField().getAnnotations()) {
+                if (!(annotation instanceof ConfigurableField)) {
+                    annotations.add(annotation);
+                }
+            }
+            this.options = Collections.unmodifiableList(annotations);
+            this.valueEditorClass = findValueEditorClass(plan);
+        }
+
+        @SuppressWarnings("rawtypes")
+        private static Class<? extends ConfigEditor> findValueEditorClass(FieldPlan plan) {
+            Class<? extends ConfigEditor> editorClass = plan.getEditorClass();
+            String key = EditorList.DEFAULT_KEY;
+            while (editorClass == EditorList.class) {
+                final EdOptsList listOptions = findListOptions(plan, key);
+                if (listOptions == null) {
+                    return editorClass;
+                }
+                editorClass = listOptions.editor();
+                key = listOptions.editorKey();
+            }
+            return editorClass;
+        }
+
+        private static EdOptsList findListOptions(FieldPlan plan, String key) {
+            for (EdOptsList listOptions : plan.getField().getAnnotationsByType(EdOptsList.class)) {
+                if (listOptions.myKey().equalsIgnoreCase(key)) {
+                    return listOptions;
+                }
+            }
+            return null;
+        }
+
+        public String getFieldName() {
+            return plan.getFieldName();
+        }
+
+        public String getJsonName() {
+            return plan.getJsonName();
+        }
+
+        public String getLabel() {
+            return plan.getAnnotation().label();
+        }
+
+        public String getDescription() {
+            return plan.getAnnotation().description();
+        }
+
+        public boolean isOptional() {
+            return plan.getAnnotation().optional();
+        }
+
+        public boolean isMerge() {
+            return plan.getAnnotation().merge();
+        }
+
+        public Set<String> getProfilesSave() {
+            return plan.getProfilesSave();
+        }
+
+        public Set<String> getProfilesGui() {
+            return plan.getProfilesGui();
+        }
+
+        /**
+         * The editor used for the field.
+         *
+         * @return The editor class of the field.
+         */
+        @SuppressWarnings("rawtypes")
+        public Class<? extends ConfigEditor> getEditorClass() {
+            return plan.getEditorClass();
+        }
+
+        /**
+         * The editor used for the values of the field. For list fields this
+         * is the editor of the items, following nested lists. For other
+         * fields it is the editor of the field.
+         *
+         * @return The editor class of the values of the field.
+         */
+        @SuppressWarnings("rawtypes")
+        public Class<? extends ConfigEditor> getValueEditorClass() {
+            return valueEditorClass;
+        }
+
+        /**
+         * The option annotations of the field editor, like EdOptsInt, holding
+         * the defaults and constraints of the field.
+         *
+         * @return The annotations of the field, except ConfigurableField.
+         */
+        public List<Annotation> getOptions() {
+            return options;
+        }
+
+        /**
+         * Get the option annotation of the given type.
+         *
+         * @param <A> The type of the annotation.
+         * @param optionsType The type of the annotation.
+         * @return The annotation, or an empty optional if the field does not
+         * have it.
+         */
+        public <A extends Annotation> Optional<A> getOptions(Class<A> optionsType) {
+            return Optional.ofNullable(plan.getField().getAnnotation(optionsType));
+        }
+
+        /**
+         * The model of the class of the value, if the values of the field are
+         * edited with an EditorClass.
+         *
+         * @return The model of the class of the value, or an empty optional.
+         */
+        public Optional<EditorModel<?>> getClassModel() {
+            if (valueEditorClass != EditorClass.class) {
+                return Optional.empty();
+            }
+            return getOptions(EdOptsClass.class).map(classOptions -> of(classOptions.clazz()));
+        }
+
+        /**
+         * The classes that can be selected, if the values of the field are
+         * edited with an EditorSubclass. Catalogs are shared between all
+         * editors with the same settings.
+         *
+         * @return The catalog of selectable classes, or an empty optional.
+         */
+        public Optional<SubclassCatalog> getSubclassCatalog() {
+            if (valueEditorClass != EditorSubclass.class) {
+                return Optional.empty();
+            }
+            return getOptions(EdOptsSubclass.class).map(subclassOptions -> SubclassCatalog.getCatalog(
+                    subclassOptions.iface(),
+                    subclassOptions.requiredAnnotation(),
+                    Arrays.asList(subclassOptions.allowList()),
+                    Arrays.asList(subclassOptions.denyList()),
+                    subclassOptions.shortenClassNames()));
+        }
+    }
+
+    private final Class<T> type;
+    private final ClassBindingPlan plan;
+    private final List<FieldModel> fields;
+    private final Map<String, FieldModel> fieldsByJsonName;
+
+    private EditorModel(Class<T> type) {
+        this.type = type;
+        this.plan = ClassBindingPlan.of(type);
+        final List<FieldModel> fieldList = new ArrayList<>();
+        final Map<String, FieldModel> byJsonName = new LinkedHashMap<>();
+        for (FieldPlan fieldPlan : plan.getFields()) {
+            final FieldModel field = new FieldModel(fieldPlan);
+            fieldList.add(field);
+            byJsonName.putIfAbsent(field.getJsonName(), field);
+        }
+        this.fields = Collections.unmodifiableList(fieldList);
+        this.fieldsByJsonName = Collections.unmodifiableMap(byJsonName);
+    }
+
+    /**
+     * Get the model for the given class.
+     *
+     * @param <T> The configurable class.
+     * @param type The configurable class.
+     * @return The model of the class.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EditorModel<T> of(Class<T> type) {
+        return (EditorModel<T>) MODELS.get(type);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Checks if the class has any of the Configurable annotations.
+     *
+     * @return true if the class is annotated.
+     */
+    public boolean isAnnotated() {
+        return plan.isAnnotated();
+    }
+
+    /**
+     * The profilesEdit of the ConfigurableClass annotation.
+     *
+     * @return The profilesEdit csv, empty if not set.
+     */
+    public String getProfilesEdit() {
+        return plan.getProfilesEdit();
+    }
+
+    /**
+     * The configurable fields of the class, in the order the editor shows
+     * them.
+     *
+     * @return The configurable fields.
+     */
+    public List<FieldModel> getFields() {
+        return fields;
+    }
+
+    /**
+     * Get the field that is stored under the given name in the configuration.
+     *
+     * @param jsonName The name of the field in the configuration.
+     * @return The field, or an empty optional.
+     */
+    public Optional<FieldModel> getField(String jsonName) {
+        return Optional.ofNullable(fieldsByJsonName.get(jsonName));
+    }
+
+    /**
+     * Create a new editor for the class, holding the state of one use of the
+     * model.
+     *
+     * @param <C> The class type that provides context at runtime.
+     * @param <D> The class type that provides context while editing.
+     * @param context The instance that provides context at runtime.
+     * @param edtCtx The instance that provides context while editing.
+     * @return A new editor, or an empty optional if the class is not
+     * annotated.
+     */
+    public <C, D> Optional<EditorMap<?>> createEditor(C context, D edtCtx) {
+        return EditorPrototypes.getEditor(type, context, edtCtx);
+    }
+
+    /**
+     * Create and configure an instance of the class from the given
+     * configuration, without creating editors. Safe to call from multiple
+     * threads at the same time.
+     *
+     * @param <C> The class type that provides context at runtime.
+     * @param config The configuration of the instance.
+     * @param context The runtime context.
+     * @return The configured instance.
+     * @throws ConfigurationException If the configuration can not be loaded.
+     * @see ConfigBinder#bind(java.lang.Class, com.google.gson.JsonElement,
+     * java.lang.Object)
+     */
+    public <C> T bind(JsonElement config, C context) throws ConfigurationException {
+        return ConfigBinder.bind(type, config, context);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorMap;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds one prototype editor per configurable class. The prototype is
+ * generated once, without contexts, from the generated binder of the class or
+ * from the annotations on the class. Editors for instances of the class are
+ * copies of the prototype, into which the contexts are injected. This avoids
+ * reading the annotations and reflectively instantiating all field editors
+ * for each instance.
+ * <p>
+ * If any of the editors of a class does not support
+ * {@link de.fraunhofer.iosb.ilt.configurable.ConfigEditor#copy()}, editors for
+ * that class are generated each time, as before. Prototypes can be disabled
+ * by setting the system property {@value #PROPERTY_ENABLED} to false.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class EditorPrototypes {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EditorPrototypes.class.getName());
+
+    /**
+     * The system property that can be used to disable editor prototypes.
+     */
+    public static final String PROPERTY_ENABLED = "configurable.prototypes.enabled";
+
+    /**
+     * The prototype of one class. The prototype itself is never handed out.
+     */
+    private static final class Prototype {
+
+        private final EditorMap<?> editor;
+        private volatile boolean copyable;
+
+        private Prototype(EditorMap<?> editor) {
+            this.editor = editor;
+            this.copyable = editor != null;
+        }
+    }
+
+    private static final ClassValue<Prototype> PROTOTYPES = new ClassValue<>() {
+        @Override
+        protected Prototype computeValue(Class<?> type) {
+            return new Prototype(generateEditor(type, null, null));
+        }
+    };
+
+    private static boolean enabled = !"false".equalsIgnoreCase(System.getProperty(PROPERTY_ENABLED));
+
+    private EditorPrototypes() {
+        // Utility class.
+    }
+
+    /**
+     * Checks if editor prototypes are used.
+     *
+     * @return true if editor prototypes are used.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the use of editor prototypes.
+     *
+     * @param enabled Flag indicating editor prototypes should be used.
+     */
+    public static void setEnabled(boolean enabled) {
+        EditorPrototypes.enabled = enabled;
+    }
+
+    /**
+     * Get a new editor for the given configurable class.
+     *
+     * @param <C> The class type that provides context at runtime.
+     * @param <D> The class type that provides context while editing.
+     * @param type The configurable class to get an editor for.
+     * @param context The instance that provides context at runtime.
+     * @param edtCtx The instance that provides context while editing.
+     * @return A new editor for the given class, or an empty optional if the
+     * class has no Configurable annotations.
+     */
+    public static <C, D> Optional<EditorMap<?>> getEditor(Class<?> type, C context, D edtCtx) {
+        if (!enabled) {
+            return Optional.ofNullable(generateEditor(type, context, edtCtx));
+        }
+        final Prototype prototype = PROTOTYPES.get(type);
+        if (prototype.editor == null) {
+            return Optional.empty();
+        }
+        if (prototype.copyable) {
+            try {
+                final EditorMap<?> copy = prototype.editor.copy();
+                if (context != null || edtCtx != null) {
+                    AnnotationHelper.injectContexts(copy, context, edtCtx);
+                }
+                return Optional.of(copy);
+            } catch (UnsupportedOperationException exc) {
+                LOGGER.debug("Editor for {} can not be copied, generating editors: {}", type.getName(), exc.getMessage());
+                prototype.copyable = false;
+            }
+        }
+        return Optional.ofNullable(generateEditor(type, context, edtCtx));
+    }
+
+    private static <C, D> EditorMap<?> generateEditor(Class<?> type, C context, D edtCtx) {
+        final ConfigurableBinder<?> binder = ConfigurableBinders.getBinder(type);
+        if (binder != null) {
+            return binder.createEditor(context, edtCtx);
+        }
+        return AnnotationHelper.generateEditorFromAnnotations(type, context, edtCtx).orElse(null);
+    }
+}
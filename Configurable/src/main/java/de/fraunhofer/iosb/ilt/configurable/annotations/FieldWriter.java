@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+/**
+ * Writes values into one property (a setter or a field) of objects of one
+ * class. Writers are resolved once, after which writing does not involve any
+ * reflective lookups. The primitive variants write without boxing when the
+ * property has the matching primitive type.
+ *
+ * @author Hylke van der Schaaf
+ */
+public interface FieldWriter {
+
+    /**
+     * The type of the property that this writer writes to.
+     *
+     * @return The type of the property, can be a primitive type.
+     */
+    public Class<?> getValueType();
+
+    /**
+     * Write the given value. Numbers are converted to the (primitive) type of
+     * the property, where Java would allow a widening conversion.
+     *
+     * @param target The object to write to.
+     * @param value The value to write.
+     */
+    public void write(Object target, Object value);
+
+    public default void writeInt(Object target, int value) {
+        write(target, value);
+    }
+
+    public default void writeLong(Object target, long value) {
+        write(target, value);
+    }
+
+    public default void writeDouble(Object target, double value) {
+        write(target, value);
+    }
+
+    public default void writeBoolean(Object target, boolean value) {
+        write(target, value);
+    }
+}
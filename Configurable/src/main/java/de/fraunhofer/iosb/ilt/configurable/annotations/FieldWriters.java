@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory methods for {@link FieldWriter}s. Setters are turned into lambdas
+ * using the {@link LambdaMetafactory}, so calling them is as fast as a direct
+ * call. Fields, and setters for which no lambda can be generated, are written
+ * using a {@link MethodHandle}.
+ *
+ * @author Hylke van der Schaaf
+ */
+final class FieldWriters {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FieldWriters.class.getName());
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GENERIC_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private FieldWriters() {
+        // Utility class.
+    }
+
+    /**
+     * Create a writer that calls the given one-argument method.
+     *
+     * @param setter The setter to call.
+     * @return A writer for the given setter.
+     * @throws IllegalAccessException If the setter is not accessible.
+     */
+    static FieldWriter forSetter(Method setter) throws IllegalAccessException {
+        final Class<?> valueType = setter.getParameterTypes()[0];
+        final MethodHandle handle = LOOKUP.unreflect(setter);
+        final boolean isStatic = Modifier.isStatic(setter.getModifiers());
+        if (!isStatic) {
+            final FieldWriter lambdaWriter = createLambdaWriter(setter.getDeclaringClass(), valueType, handle);
+            if (lambdaWriter != null) {
+                return lambdaWriter;
+            }
+        }
+        return new HandleWriter(valueType, handle, isStatic);
+    }
+
+    /**
+     * Create a writer that writes the given field directly.
+     *
+     * @param field The field to write.
+     * @return A writer for the given field.
+     * @throws IllegalAccessException If the field can not be written.
+     */
+    static FieldWriter forField(Field field) throws IllegalAccessException {
+        if (!field.trySetAccessible()) {
+            LOGGER.debug("Could not make field {} accessible.", field);
+        }
+        final MethodHandle handle = LOOKUP.unreflectSetter(field);
+        return new HandleWriter(field.getType(), handle, Modifier.isStatic(field.getModifiers()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FieldWriter createLambdaWriter(Class<?> owner, Class<?> valueType, MethodHandle handle) {
+        try {
+            // The lambda must be defined next to the owner, so it can see classes from the owner's class loader.
+            final MethodHandles.Lookup caller = MethodHandles.privateLookupIn(owner, LOOKUP);
+            final MethodType instantiatedType = MethodType.methodType(void.class, owner, valueType);
+            if (valueType == int.class) {
+                final ObjIntConsumer<Object> consumer = (ObjIntConsumer<Object>) createLambda(caller, ObjIntConsumer.class, MethodType.methodType(void.class, Object.class, int.class), handle, instantiatedType);
+                return new IntWriter(consumer);
+            }
+            if (valueType == long.class) {
+                final ObjLongConsumer<Object> consumer = (ObjLongConsumer<Object>) createLambda(caller, ObjLongConsumer.class, MethodType.methodType(void.class, Object.class, long.class), handle, instantiatedType);
+                return new LongWriter(consumer);
+            }
+            if (valueType == double.class) {
+                final ObjDoubleConsumer<Object> consumer = (ObjDoubleConsumer<Object>) createLambda(caller, ObjDoubleConsumer.class, MethodType.methodType(void.class, Object.class, double.class), handle, instantiatedType);
+                return new DoubleWriter(consumer);
+            }
+            if (!valueType.isPrimitive()) {
+                final BiConsumer<Object, Object> consumer = (BiConsumer<Object, Object>) createLambda(caller, BiConsumer.class, GENERIC_TYPE, handle, instantiatedType);
+                return new ObjectWriter(valueType, consumer);
+            }
+            return null;
+        } catch (Throwable exc) {
+            LOGGER.debug("Could not create lambda for {}, using method handle: {}", handle, exc.getMessage());
+            return null;
+        }
+    }
+
+    private static Object createLambda(MethodHandles.Lookup caller, Class<?> samInterface, MethodType samType, MethodHandle handle, MethodType instantiatedType) throws Throwable {
+        final CallSite site = LambdaMetafactory.metafactory(
+                caller,
+                "accept",
+                MethodType.methodType(samInterface),
+                samType,
+                handle,
+                instantiatedType);
+        return site.getTarget().invoke();
+    }
+
+    /**
+     * Converts boxed numbers (and chars) to the wrapper of the given primitive
+     * type, so they can be unboxed to that type.
+     */
+    static Object widen(Object value, Class<?> type) {
+        if (!type.isPrimitive() || type == boolean.class) {
+            return value;
+        }
+        final Number number;
+        if (value instanceof Character character) {
+            number = (int) character;
+        } else if (value instanceof Number n) {
+            number = n;
+        } else {
+            return value;
+        }
+        if (type == int.class) {
+            return number.intValue();
+        } else if (type == long.class) {
+            return number.longValue();
+        } else if (type == double.class) {
+            return number.doubleValue();
+        } else if (type == float.class) {
+            return number.floatValue();
+        } else if (type == short.class) {
+            return number.shortValue();
+        } else if (type == byte.class) {
+            return number.byteValue();
+        } else if (type == char.class) {
+            return (char) number.intValue();
+        }
+        return value;
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Character character) {
+            return (int) character;
+        }
+        return (Number) value;
+    }
+
+    private static final class ObjectWriter implements FieldWriter {
+
+        private final Class<?> valueType;
+        private final BiConsumer<Object, Object> consumer;
+
+        private ObjectWriter(Class<?> valueType, BiConsumer<Object, Object> consumer) {
+            this.valueType = valueType;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public Class<?> getValueType() {
+            return valueType;
+        }
+
+        @Override
+        public void write(Object target, Object value) {
+            consumer.accept(target, value);
+        }
+    }
+
+    private static final class IntWriter implements FieldWriter {
+
+        private final ObjIntConsumer<Object> consumer;
+
+        private IntWriter(ObjIntConsumer<Object> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public Class<?> getValueType() {
+            return int.class;
+        }
+
+        @Override
+        public void write(Object target, Object value) {
+            consumer.accept(target, toNumber(value).intValue());
+        }
+
+        @Override
+        public void writeInt(Object target, int value) {
+            consumer.accept(target, value);
+        }
+    }
+
+    private static final class LongWriter implements FieldWriter {
+
+        private final ObjLongConsumer<Object> consumer;
+
+        private LongWriter(ObjLongConsumer<Object> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public Class<?> getValueType() {
+            return long.class;
+        }
+
+        @Override
+        public void write(Object target, Object value) {
+            consumer.accept(target, toNumber(value).longValue());
+        }
+
+        @Override
+        public void writeInt(Object target, int value) {
+            consumer.accept(target, value);
+        }
+
+        @Override
+        public void writeLong(Object target, long value) {
+            consumer.accept(target, value);
+        }
+    }
+
+    private static final class DoubleWriter implements FieldWriter {
+
+        private final ObjDoubleConsumer<Object> consumer;
+
+        private DoubleWriter(ObjDoubleConsumer<Object> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public Class<?> getValueType() {
+            return double.class;
+        }
+
+        @Override
+        public void write(Object target, Object value) {
+            consumer.accept(target, toNumber(value).doubleValue());
+        }
+
+        @Override
+        public void writeInt(Object target, int value) {
+            consumer.accept(target, value);
+        }
+
+        @Override
+        public void writeLong(Object target, long value) {
+            consumer.accept(target, value);
+        }
+
+        @Override
+        public void writeDouble(Object target, double value) {
+            consumer.accept(target, value);
+        }
+    }
+
+    /**
+     * Writes using a MethodHandle, with exact handles for the primitive
+     * variants when the property has that primitive type.
+     */
+    private static final class HandleWriter implements FieldWriter {
+
+        private final Class<?> valueType;
+        private final MethodHandle generic;
+        private final MethodHandle primitive;
+
+        private HandleWriter(Class<?> valueType, MethodHandle handle, boolean isStatic) {
+            this.valueType = valueType;
+            final MethodHandle withTarget = isStatic ? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+            this.generic = withTarget.asType(GENERIC_TYPE);
+            if (valueType.isPrimitive()) {
+                primitive = withTarget.asType(MethodType.methodType(void.class, Object.class, valueType));
+            } else {
+                primitive = null;
+            }
+        }
+
+        @Override
+        public Class<?> getValueType() {
+            return valueType;
+        }
+
+        @Override
+        public void write(Object target, Object value) {
+            try {
+                generic.invokeExact(target, widen(value, valueType));
+            } catch (RuntimeException | Error exc) {
+                throw exc;
+            } catch (Throwable exc) {
+                throw new UndeclaredThrowableException(exc);
+            }
+        }
+
+        @Override
+        public void writeInt(Object target, int value) {
+            if (valueType != int.class) {
+                write(target, value);
+                return;
+            }
+            try {
+                primitive.invokeExact(target, value);
+            } catch (RuntimeException | Error exc) {
+                throw exc;
+            } catch (Throwable exc) {
+                throw new UndeclaredThrowableException(exc);
+            }
+        }
+
+        @Override
+        public void writeLong(Object target, long value) {
+            if (valueType != long.class) {
+                write(target, value);
+                return;
+            }
+            try {
+                primitive.invokeExact(target, value);
+            } catch (RuntimeException | Error exc) {
+                throw exc;
+            } catch (Throwable exc) {
+                throw new UndeclaredThrowableException(exc);
+            }
+        }
+
+        @Override
+        public void writeDouble(Object target, double value) {
+            if (valueType != double.class) {
+                write(target, value);
+                return;
+            }
+            try {
+                primitive.invokeExact(target, value);
+            } catch (RuntimeException | Error exc) {
+                throw exc;
+            } catch (Throwable exc) {
+                throw new UndeclaredThrowableException(exc);
+            }
+        }
+
+        @Override
+        public void writeBoolean(Object target, boolean value) {
+            if (valueType != boolean.class) {
+                write(target, value);
+                return;
+            }
+            try {
+                primitive.invokeExact(target, value);
+            } catch (RuntimeException | Error exc) {
+                throw exc;
+            } catch (Throwable exc) {
+                throw new UndeclaredThrowableException(exc);
+            }
+        }
+    }
+}
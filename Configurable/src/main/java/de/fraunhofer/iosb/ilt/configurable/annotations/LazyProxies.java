@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.annotations.SharedInstances.InstanceFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Collection;
+import java.util.List;
+import org.apache.commons.lang3.ClassUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates proxies that stand in for an instance that is not created until a
+ * method is called on the proxy. A proxy implements all interfaces of the
+ * class of the instance, so it can only be used where the value is typed by
+ * one of these interfaces. The instance is created once, also when the proxy
+ * is used from several threads at the same time.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class LazyProxies {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyProxies.class.getName());
+
+    private static final ClassValue<Class<?>[]> INTERFACES = new ClassValue<>() {
+        @Override
+        protected Class<?>[] computeValue(Class<?> type) {
+            final List<Class<?>> interfaces = ClassUtils.getAllInterfaces(type);
+            if (type.isInterface()) {
+                interfaces.add(0, type);
+            }
+            return interfaces.toArray(Class<?>[]::new);
+        }
+    };
+
+    private LazyProxies() {
+        // Utility class.
+    }
+
+    /**
+     * Checks if a proxy can be created for instances of the given class.
+     *
+     * @param type The class to check.
+     * @return true if the class is or implements at least one interface.
+     */
+    public static boolean canProxy(Class<?> type) {
+        return INTERFACES.get(type).length > 0;
+    }
+
+    /**
+     * Checks if a lazy proxy for instances of the given class can be assigned
+     * to the given field. This is the case if the field, or for collection
+     * fields the element type, is an interface implemented by the class.
+     *
+     * @param field The field the values are for.
+     * @param type The class, or the interface all values implement.
+     * @return true if a proxy can be used for the values of the field.
+     */
+    public static boolean canProxyFor(Field field, Class<?> type) {
+        final Class<?> valueType = getValueType(field);
+        return valueType != null && valueType.isInterface() && valueType.isAssignableFrom(type);
+    }
+
+    /**
+     * Checks if the lazy option, set on the given field, can be used. Logs a
+     * warning if it can not, since the option is then ignored.
+     *
+     * @param field The field that has the lazy option set.
+     * @param type The class, or the interface all values implement.
+     * @return true if a proxy can be used for the values of the field.
+     */
+    public static boolean useLazyFor(Field field, Class<?> type) {
+        if (canProxyFor(field, type)) {
+            return true;
+        }
+        LOGGER.warn("Ignoring lazy on field {}, it is not typed by an interface implemented by {}.", field, type.getName());
+        return false;
+    }
+
+    private static Class<?> getValueType(Field field) {
+        if (!Collection.class.isAssignableFrom(field.getType())) {
+            return field.getType();
+        }
+        if (!(field.getGenericType() instanceof ParameterizedType)) {
+            return null;
+        }
+        Type itemType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+        if (itemType instanceof WildcardType) {
+            itemType = ((WildcardType) itemType).getUpperBounds()[0];
+        }
+        if (itemType instanceof ParameterizedType) {
+            itemType = ((ParameterizedType) itemType).getRawType();
+        }
+        return itemType instanceof Class ? (Class<?>) itemType : null;
+    }
+
+    /**
+     * Create a proxy that creates the actual instance using the given factory
+     * when the first method is called on it. If creating the instance fails,
+     * the method call throws an IllegalStateException, and the next call tries
+     * again.
+     *
+     * @param <T> The type of the proxy.
+     * @param type The class of the instance the factory creates.
+     * @param factory The factory that creates the instance.
+     * @return The proxy.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T create(Class<?> type, InstanceFactory<?> factory) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), INTERFACES.get(type), new LazyHandler(type, factory));
+    }
+
+    /**
+     * Checks if the given object is a proxy created by this class.
+     *
+     * @param value The object to check.
+     * @return true if the given object is a lazy proxy.
+     */
+    public static boolean isLazy(Object value) {
+        return getHandler(value) != null;
+    }
+
+    /**
+     * Checks if the instance behind the given lazy proxy has been created.
+     *
+     * @param value The proxy to check.
+     * @return false if the given object is a lazy proxy that has not created
+     * its instance yet, true otherwise.
+     */
+    public static boolean isInitialized(Object value) {
+        final LazyHandler handler = getHandler(value);
+        return handler == null || handler.target != null;
+    }
+
+    private static LazyHandler getHandler(Object value) {
+        if (value == null || !Proxy.isProxyClass(value.getClass())) {
+            return null;
+        }
+        final InvocationHandler handler = Proxy.getInvocationHandler(value);
+        return handler instanceof LazyHandler ? (LazyHandler) handler : null;
+    }
+
+    private static final class LazyHandler implements InvocationHandler {
+
+        private final Class<?> type;
+        /**
+         * Guarded by this, cleared once the target is created.
+         */
+        private InstanceFactory<?> factory;
+        private volatile Object target;
+
+        private LazyHandler(Class<?> type, InstanceFactory<?> factory) {
+            this.type = type;
+            this.factory = factory;
+        }
+
+        private Object getTarget() {
+            Object result = target;
+            if (result == null) {
+                synchronized (this) {
+                    result = target;
+                    if (result == null) {
+                        try {
+                            result = factory.create();
+                        } catch (ConfigurationException exc) {
+                            throw new IllegalStateException("Failed to create instance of " + type.getName(), exc);
+                        }
+                        if (result == null) {
+                            throw new IllegalStateException("Factory returned null for " + type.getName());
+                        }
+                        target = result;
+                        factory = null;
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Object instance = getTarget();
+            if ("equals".equals(method.getName()) && method.getParameterCount() == 1 && method.getParameterTypes()[0] == Object.class) {
+                final LazyHandler other = getHandler(args[0]);
+                return instance.equals(other == null ? args[0] : other.getTarget());
+            }
+            try {
+                return method.invoke(instance, args);
+            } catch (InvocationTargetException exc) {
+                throw exc.getCause();
+            }
+        }
+    }
+
+}
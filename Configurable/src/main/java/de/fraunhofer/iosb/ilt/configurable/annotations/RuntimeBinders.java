@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.FieldPlan;
+import de.fraunhofer.iosb.ilt.configurable.editor.AbstractEditorMap;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates binders at runtime, for classes that were not compiled with the
+ * BinderProcessor, like classes from plugin jars. The generated binder is a
+ * hidden class, defined as a nestmate of the configurable class, with a
+ * setContentsOn method that calls the setters and assigns the fields of the
+ * class directly, including its private fields. Fields of superclasses that
+ * can not be accessed from the class are written through the
+ * {@link ClassBindingPlan}.
+ * <p>
+ * Generating binders is opt-in, see
+ * {@link ConfigurableBinders#setRuntimeGeneration(boolean)}. Binders are
+ * generated once per class. If a binder can not be generated, reflection is
+ * used.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class RuntimeBinders {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RuntimeBinders.class.getName());
+    private static final String CLASS_NAME_SUFFIX = "$$RuntimeBinder";
+
+    private static final ClassValue<Optional<ConfigurableBinder<?>>> BINDERS = new ClassValue<>() {
+        @Override
+        protected Optional<ConfigurableBinder<?>> computeValue(Class<?> type) {
+            return Optional.ofNullable(generateBinder(type));
+        }
+    };
+
+    private RuntimeBinders() {
+        // Utility class.
+    }
+
+    /**
+     * Get the runtime generated binder for the given class, generating it on
+     * first use.
+     *
+     * @param <T> The type of the class.
+     * @param type The class to get the binder for.
+     * @return The binder, or null if no binder can be generated for the class.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ConfigurableBinder<T> getBinder(Class<T> type) {
+        return (ConfigurableBinder<T>) BINDERS.get(type).orElse(null);
+    }
+
+    private static ConfigurableBinder<?> generateBinder(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || type.isHidden() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        final ClassBindingPlan plan = ClassBindingPlan.of(type);
+        if (plan.getFields().isEmpty()) {
+            return null;
+        }
+        try {
+            final long start = System.nanoTime();
+            final byte[] bytes = createClassFile(type, plan);
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                    .defineHiddenClass(bytes, true, MethodHandles.Lookup.ClassOption.NESTMATE);
+            final ConfigurableBinder<?> binder = (ConfigurableBinder<?>) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, Class.class))
+                    .invoke(type);
+            LOGGER.debug("Generated binder for {} in {}ms.", type.getName(), (System.nanoTime() - start) / 1_000_000);
+            return binder;
+        } catch (Throwable exc) {
+            LOGGER.warn("Failed to generate binder for {}, using reflection: {}", type.getName(), exc.toString());
+            LOGGER.debug("Exception:", exc);
+            return null;
+        }
+    }
+
+    private static byte[] createClassFile(Class<?> type, ClassBindingPlan plan) throws Exception {
+        final ClassPool pool = new ClassPool(false);
+        pool.appendClassPath(new ClassClassPath(RuntimeBinders.class));
+        pool.appendClassPath(new ClassClassPath(type));
+        if (type.getClassLoader() != null) {
+            pool.appendClassPath(new LoaderClassPath(type.getClassLoader()));
+        }
+        pool.appendSystemPath();
+        final String binderName = type.getName() + CLASS_NAME_SUFFIX;
+        final CtClass binderClass = pool.makeClass(binderName);
+        binderClass.setModifiers(javassist.Modifier.PUBLIC | javassist.Modifier.FINAL);
+        binderClass.setSuperclass(pool.get(AbstractRuntimeBinder.class.getName()));
+        final String simpleName = binderName.substring(binderName.lastIndexOf('.') + 1);
+        binderClass.addConstructor(CtNewConstructor.make("public " + simpleName + "(Class type) { super(type); }", binderClass));
+        final List<Field> privateFields = new ArrayList<>();
+        final String setContentsOn = createSetContentsOn(type, plan, privateFields);
+        // The javassist compiler refuses access to private fields. The binder is a nestmate, so the JVM allows it.
+        for (Field field : privateFields) {
+            final CtField ctField = pool.get(field.getDeclaringClass().getName()).getField(field.getName());
+            ctField.setModifiers(javassist.Modifier.setPublic(ctField.getModifiers()));
+        }
+        binderClass.addMethod(CtNewMethod.make(setContentsOn, binderClass));
+        final byte[] bytes = binderClass.toBytecode();
+        binderClass.detach();
+        return bytes;
+    }
+
+    private static String createSetContentsOn(Class<?> type, ClassBindingPlan plan, List<Field> privateFields) {
+        final String typeName = type.getName();
+        final StringBuilder code = new StringBuilder()
+                .append("public void setContentsOn(")
+                .append(AbstractEditorMap.class.getName()).append(" editor, Object object) throws ")
+                .append(ConfigurationException.class.getName()).append(" {\n")
+                .append(typeName).append(" target = (").append(typeName).append(") object;\n")
+                .append("Object value;\n");
+        for (FieldPlan fieldPlan : plan.getFields()) {
+            final String fieldName = fieldPlan.getFieldName();
+            if (plan.isConstructorParameter(fieldName)) {
+                continue;
+            }
+            code.append("value = editor.getValueOrDefault(\"").append(escape(fieldPlan.getJsonName())).append("\");\n");
+            final String direct = createDirectWrite(type, fieldPlan, privateFields);
+            if (direct != null) {
+                code.append(direct).append(" else ");
+            }
+            code.append("if (value != null) { write(target, \"").append(escape(fieldName)).append("\", value); }\n");
+        }
+        code.append("}");
+        return code.toString();
+    }
+
+    /**
+     * Creates the if-statement that writes the value directly, if the
+     * property is written through a single public setter, or through a field
+     * that is accessible from the class. Private fields that are written
+     * directly are added to the given list.
+     *
+     * @return the if-statement, or null if the property can not be written
+     * directly.
+     */
+    private static String createDirectWrite(Class<?> type, FieldPlan fieldPlan, List<Field> privateFields) {
+        final String fieldName = fieldPlan.getFieldName();
+        final String setterName = "set" + fieldName.substring(0, 1).toUpperCase(Locale.ROOT) + fieldName.substring(1);
+        final List<Method> setters = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            if (method.getParameterCount() == 1 && method.getName().equals(setterName)) {
+                setters.add(method);
+            }
+        }
+        if (setters.size() > 1) {
+            return null;
+        }
+        if (setters.size() == 1) {
+            final Method setter = setters.get(0);
+            final Class<?> valueType = setter.getParameterTypes()[0];
+            if (Modifier.isStatic(setter.getModifiers())
+                    || !isAccessible(type, setter.getDeclaringClass())
+                    || !isAccessible(type, valueType)) {
+                return null;
+            }
+            // Setter exceptions are handled like the ClassBindingPlan does: by writing the field.
+            return "if (value instanceof " + checkedTypeName(valueType) + ") { try { target." + setterName + "(" + unbox(valueType) + "); }"
+                    + " catch (RuntimeException exc) { setterFailed(target, \"" + escape(fieldName) + "\", value, exc); } }";
+        }
+        final Field field = fieldPlan.getField();
+        final int modifiers = field.getModifiers();
+        if (Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers) || !Objects.equals(field, FieldUtils.getField(type, fieldName, true))) {
+            return null;
+        }
+        final boolean nestmate = field.getDeclaringClass().isNestmateOf(type);
+        final boolean accessible = nestmate
+                || !Modifier.isPrivate(modifiers) && (Modifier.isPublic(modifiers) || samePackage(type, field.getDeclaringClass()));
+        if (!accessible || !isAccessible(type, field.getType())) {
+            return null;
+        }
+        if (Modifier.isPrivate(modifiers)) {
+            privateFields.add(field);
+        }
+        return "if (value instanceof " + checkedTypeName(field.getType()) + ") { target." + fieldName + " = " + unbox(field.getType()) + "; }";
+    }
+
+    private static boolean isAccessible(Class<?> from, Class<?> type) {
+        if (type.isPrimitive()) {
+            return true;
+        }
+        if (type.isArray()) {
+            // Array type names are not supported by the javassist compiler in casts.
+            return false;
+        }
+        Class<?> current = type;
+        while (current != null) {
+            final int modifiers = current.getModifiers();
+            if (Modifier.isPrivate(modifiers) && !current.isNestmateOf(from)) {
+                return false;
+            }
+            if (!Modifier.isPublic(modifiers) && !samePackage(from, current)) {
+                return false;
+            }
+            current = current.getEnclosingClass();
+        }
+        return true;
+    }
+
+    private static boolean samePackage(Class<?> one, Class<?> two) {
+        return one.getClassLoader() == two.getClassLoader() && one.getPackageName().equals(two.getPackageName());
+    }
+
+    private static String checkedTypeName(Class<?> type) {
+        return ClassUtils.primitiveToWrapper(type).getName();
+    }
+
+    /**
+     * The expression that casts the value to the given type, and unboxes it
+     * for primitive types. The javassist compiler does not unbox
+     * automatically.
+     */
+    private static String unbox(Class<?> type) {
+        final String cast = "((" + checkedTypeName(type) + ") value)";
+        if (type.isPrimitive()) {
+            return cast + "." + type.getName() + "Value()";
+        }
+        return cast;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
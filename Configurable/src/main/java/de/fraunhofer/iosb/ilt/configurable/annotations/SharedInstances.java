@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.Utils;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the instances of classes marked as shareable in their
+ * ConfigurableClass annotation, by class, configuration and contexts.
+ * Configurations are compared by their JSON content: the order of the members
+ * of objects does not matter, and numbers are compared by value. The instances are only weakly referenced, they
+ * are dropped when they are no longer used elsewhere. The classes and
+ * contexts are also only weakly referenced, so a shared instance does not
+ * keep its runtime context or the class loader of its class alive.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class SharedInstances {
+
+    /**
+     * Creates a new instance when there is no shared one.
+     *
+     * @param <T> The type of the instance.
+     */
+    @FunctionalInterface
+    public static interface InstanceFactory<T> {
+
+        /**
+         * Create a new instance.
+         *
+         * @return The new instance.
+         * @throws ConfigurationException If the instance can not be created.
+         */
+        public T create() throws ConfigurationException;
+    }
+
+    private static final ConcurrentMap<Key, SharedInstance> INSTANCES = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+
+    private SharedInstances() {
+        // Utility class.
+    }
+
+    /**
+     * Checks if instances of the given class can be shared.
+     *
+     * @param type The class to check.
+     * @return true if the class is marked as shareable.
+     */
+    public static boolean isShareable(Class<?> type) {
+        return type != null && ClassBindingPlan.of(type).isShareable();
+    }
+
+    /**
+     * Get the shared instance of the given class for the given configuration
+     * and contexts, creating it with the given factory if there is none. If
+     * the class is not shareable, the factory is always used.
+     *
+     * @param <T> The type of the instance.
+     * @param type The class of the instance.
+     * @param config The configuration of the instance.
+     * @param context The runtime context.
+     * @param edtCtx The edit context.
+     * @param factory The factory to create a new instance with.
+     * @return The shared instance.
+     * @throws ConfigurationException If the factory fails.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T intern(Class<?> type, JsonElement config, Object context, Object edtCtx, InstanceFactory<T> factory) throws ConfigurationException {
+        if (!isShareable(type)) {
+            return factory.create();
+        }
+        expungeStale();
+        final JsonElement keyConfig = config == null ? JsonNull.INSTANCE : config;
+        final SharedInstance found = INSTANCES.get(new Key(type, keyConfig, context, edtCtx, false));
+        if (found != null) {
+            final Object instance = found.get();
+            if (instance != null) {
+                return (T) instance;
+            }
+        }
+        final T created = factory.create();
+        if (created == null) {
+            return null;
+        }
+        final Key key = new Key(type, keyConfig.deepCopy(), context, edtCtx, true);
+        final SharedInstance entry = new SharedInstance(key, created);
+        while (true) {
+            final SharedInstance existing = INSTANCES.putIfAbsent(key, entry);
+            if (existing == null) {
+                return created;
+            }
+            final Object instance = existing.get();
+            if (instance != null) {
+                return (T) instance;
+            }
+            if (INSTANCES.replace(key, existing, entry)) {
+                return created;
+            }
+        }
+    }
+
+    private static void expungeStale() {
+        Reference<?> stale;
+        while ((stale = QUEUE.poll()) != null) {
+            if (stale instanceof SharedInstance instance) {
+                INSTANCES.remove(instance.key, instance);
+            } else if (stale instanceof KeyReference reference) {
+                INSTANCES.remove(reference.key);
+            }
+        }
+    }
+
+    private static final class SharedInstance extends WeakReference<Object> {
+
+        private final Key key;
+
+        private SharedInstance(Key key, Object instance) {
+            super(instance, QUEUE);
+            this.key = key;
+        }
+    }
+
+    /**
+     * A weak reference to the class or a context of a stored key. When it is
+     * cleared, the key can no longer be found and its entry is removed.
+     */
+    private static final class KeyReference extends WeakReference<Object> {
+
+        private final Key key;
+
+        private KeyReference(Key key, Object referent) {
+            super(referent, QUEUE);
+            this.key = key;
+        }
+    }
+
+    /**
+     * The key of a shared instance. The contexts are compared by identity.
+     * The keys stored in the map hold the class and the contexts through
+     * KeyReferences, the keys used for lookups hold them directly.
+     */
+    private static final class Key {
+
+        private final Object type;
+        private final JsonElement config;
+        private final Object context;
+        private final Object edtCtx;
+        private final int hash;
+
+        private Key(Class<?> type, JsonElement config, Object context, Object edtCtx, boolean weak) {
+            this.type = weak ? new KeyReference(this, type) : type;
+            this.config = config;
+            this.context = weak && context != null ? new KeyReference(this, context) : context;
+            this.edtCtx = weak && edtCtx != null ? new KeyReference(this, edtCtx) : edtCtx;
+            this.hash = Objects.hash(type, Utils.jsonHash(config), System.identityHashCode(context), System.identityHashCode(edtCtx));
+        }
+
+        private static Object referent(Object value) {
+            if (value instanceof KeyReference reference) {
+                return reference.get();
+            }
+            return value;
+        }
+
+        /**
+         * Checks if the given values of two keys refer to the same object. A
+         * cleared reference is not the same as a null context.
+         */
+        private static boolean sameReferent(Object value, Object otherValue) {
+            final Object referent = referent(value);
+            if (referent != referent(otherValue)) {
+                return false;
+            }
+            return referent != null || (value == null && otherValue == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash == other.hash
+                    && sameReferent(type, other.type)
+                    && sameReferent(context, other.context)
+                    && sameReferent(edtCtx, other.edtCtx)
+                    && config.equals(other.config);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import java.io.IOException;
+
+/**
+ * Turns the JSON configuration of one field directly into the value of that
+ * field, without creating an editor. Each reader produces exactly the value
+ * that the editor of the field would produce for the same configuration.
+ *
+ * @author Hylke van der Schaaf
+ */
+interface ValueReader {
+
+    /**
+     * The value the editor would return from getValue, after being
+     * configured with the given configuration.
+     *
+     * @param config The configuration of the field, can be null.
+     * @param context The runtime context.
+     * @param edtCtx The edit context.
+     * @return The value of the field.
+     * @throws ConfigurationException if the value could not be created.
+     */
+    public Object read(JsonElement config, Object context, Object edtCtx) throws ConfigurationException;
+
+    /**
+     * The same as {@link #read(com.google.gson.JsonElement, java.lang.Object, java.lang.Object)},
+     * but reading the configuration from the given reader, which is
+     * positioned at the value of the field. By default the value is parsed
+     * into a JsonElement, readers for large values read the tokens directly.
+     *
+     * @param in The reader to read the configuration of the field from.
+     * @param context The runtime context.
+     * @param edtCtx The edit context.
+     * @return The value of the field.
+     * @throws IOException if reading fails.
+     * @throws ConfigurationException if the value could not be created.
+     */
+    public default Object readStream(JsonReader in, Object context, Object edtCtx) throws IOException, ConfigurationException {
+        return read(JsonParser.parseReader(in), context, edtCtx);
+    }
+
+    /**
+     * The value the editor would return from getDefaultValue.
+     *
+     * @param context The runtime context.
+     * @param edtCtx The edit context.
+     * @return The default value of the field.
+     * @throws ConfigurationException if the value could not be created.
+     */
+    public Object readDefault(Object context, Object edtCtx) throws ConfigurationException;
+
+    /**
+     * The value a new editor would return from getValue, without ever being
+     * configured. Used for the items that a list adds to reach its minimum
+     * size.
+     *
+     * @param context The runtime context.
+     * @param edtCtx The edit context.
+     * @return The value of an unconfigured editor.
+     * @throws ConfigurationException if the value could not be created.
+     */
+    public default Object readUnconfigured(Object context, Object edtCtx) throws ConfigurationException {
+        return read(null, context, edtCtx);
+    }
+}
@@ -0,0 +1,628 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.annotations;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import de.fraunhofer.iosb.ilt.configurable.ConfigEditor;
+import de.fraunhofer.iosb.ilt.configurable.ConfigurableFactory;
+import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.Utils;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorBigDecimal;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorBigDecimal.EdOptsBigDecimal;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorBoolean;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorBoolean.EdOptsBool;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorClass;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorClass.EdOptsClass;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorColor;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorColor.EdOptsColor;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorDouble;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorDouble.EdOptsDouble;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorEnum;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorEnum.EdOptsEnum;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorInt;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorInt.EdOptsInt;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorList;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorList.EdOptsList;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorLong;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorLong.EdOptsLong;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorNull;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorPassword;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorPassword.EdOptsPassword;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorString;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorString.EdOptsString;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorSubclass;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorSubclass.EdOptsSubclass;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorSubclass.NoFilter;
+import de.fraunhofer.iosb.ilt.configurable.editor.SubclassCatalog;
+import java.awt.Color;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory methods for {@link ValueReader}s. The editors of the library each
+ * have a reader that uses the same static parse and default methods as the
+ * setConfig, getValue and getDefaultValue methods of the editor. Other editors, including subclasses of the editors of
+ * the library, are read by creating the editor.
+ *
+ * @author Hylke van der Schaaf
+ */
+final class ValueReaders {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ValueReaders.class.getName());
+
+    private ValueReaders() {
+        // Utility class.
+    }
+
+    /**
+     * Create a reader for the given field, that produces the same values as
+     * the given editor would, when created for the field by AnnotationHelper.
+     *
+     * @param editorClass The editor class of the field.
+     * @param field The field.
+     * @return A reader for the given field.
+     */
+    @SuppressWarnings("rawtypes")
+    static ValueReader forEditor(Class<? extends ConfigEditor> editorClass, Field field) {
+        return forEditor(editorClass, field, null);
+    }
+
+    /**
+     * Create a reader that produces the same values as an EditorSubclass for
+     * the given interface or superclass, with the default options.
+     *
+     * @param iface The interface or superclass of the instances.
+     * @return A reader for instances of subclasses of the given type.
+     */
+    static ValueReader forSubclass(Class<?> iface) {
+        return new SubclassReader(iface, NoFilter.class, Collections.emptyList(), Collections.emptyList(), false, false, EditorSubclass.KEY_CLASSNAME, false);
+    }
+
+    /**
+     * Create a reader for the given field, that produces the same values as
+     * the given editor would.
+     *
+     * @param editorClass The editor class of the field.
+     * @param field The field.
+     * @param key The key of the editor configuration, used by list editors,
+     * or null to initialise the editor without a key.
+     * @return A reader for the given field.
+     */
+    @SuppressWarnings("rawtypes")
+    static ValueReader forEditor(Class<? extends ConfigEditor> editorClass, Field field, String key) {
+        if (editorClass == EditorBoolean.class) {
+            return forBoolean(field);
+        }
+        if (editorClass == EditorInt.class) {
+            return forInt(field);
+        }
+        if (editorClass == EditorLong.class) {
+            return forLong(field);
+        }
+        if (editorClass == EditorDouble.class) {
+            return forDouble(field);
+        }
+        if (editorClass == EditorString.class) {
+            return forString(EditorString.findDefault(getAnnotation(field, EdOptsString.class)));
+        }
+        if (editorClass == EditorPassword.class) {
+            return forString(getAnnotation(field, EdOptsPassword.class).dflt());
+        }
+        if (editorClass == EditorEnum.class) {
+            return forEnum(field);
+        }
+        if (editorClass == EditorBigDecimal.class) {
+            return forBigDecimal(field);
+        }
+        if (editorClass == EditorColor.class) {
+            return forColor(field);
+        }
+        if (editorClass == EditorNull.class) {
+            return new NullReader();
+        }
+        if (editorClass == EditorClass.class) {
+            final EdOptsClass annotation = getAnnotation(field, EdOptsClass.class);
+            return new ClassReader(annotation.clazz(), annotation.dfltIsNull(), annotation.lazy() && LazyProxies.useLazyFor(field, annotation.clazz()));
+        }
+        if (editorClass == EditorSubclass.class) {
+            final EdOptsSubclass annotation = getAnnotation(field, EdOptsSubclass.class);
+            return new SubclassReader(
+                    annotation.iface(),
+                    annotation.requiredAnnotation(),
+                    Arrays.asList(annotation.allowList()),
+                    Arrays.asList(annotation.denyList()),
+                    annotation.shortenClassNames(),
+                    annotation.merge(),
+                    annotation.nameField(),
+                    annotation.lazy() && LazyProxies.useLazyFor(field, annotation.iface()));
+        }
+        if (editorClass == EditorList.class) {
+            return forList(field, key == null ? EditorList.DEFAULT_KEY : key);
+        }
+        return new EditorReader(editorClass, field, key);
+    }
+
+    private static <A extends Annotation> A getAnnotation(Field field, Class<A> annotationType) {
+        final A annotation = field.getAnnotation(annotationType);
+        if (annotation == null) {
+            throw new IllegalArgumentException("Field must have an " + annotationType.getSimpleName() + " annotation to use this editor: " + field.getName());
+        }
+        return annotation;
+    }
+
+    private static ValueReader forBoolean(Field field) {
+        final Boolean dflt = EditorBoolean.findDefault(field, getAnnotation(field, EdOptsBool.class));
+        return new ScalarReader(dflt) {
+            @Override
+            public Object read(JsonElement config, Object context, Object edtCtx) {
+                return EditorBoolean.parseConfig(config, dflt);
+            }
+        };
+    }
+
+    private static ValueReader forInt(Field field) {
+        final EdOptsInt annotation = getAnnotation(field, EdOptsInt.class);
+        final Integer dflt = EditorInt.findDefault(field, annotation);
+        final int min = annotation.min();
+        final int max = annotation.max();
+        return new ScalarReader(dflt) {
+            @Override
+            public Object read(JsonElement config, Object context, Object edtCtx) {
+                return EditorInt.clamp(EditorInt.parseConfig(config, dflt), min, max);
+            }
+        };
+    }
+
+    private static ValueReader forLong(Field field) {
+        final EdOptsLong annotation = getAnnotation(field, EdOptsLong.class);
+        final Long dflt = EditorLong.findDefault(field, annotation);
+        final long min = annotation.min();
+        final long max = annotation.max();
+        return new ScalarReader(dflt) {
+            @Override
+            public Object read(JsonElement config, Object context, Object edtCtx) {
+                return EditorLong.clamp(EditorLong.parseConfig(config, dflt), min, max);
+            }
+        };
+    }
+
+    private static ValueReader forDouble(Field field) {
+        final EdOptsDouble annotation = getAnnotation(field, EdOptsDouble.class);
+        final Double dflt = EditorDouble.findDefault(field, annotation);
+        final double min = annotation.min();
+        final double max = annotation.max();
+        return new ScalarReader(dflt) {
+            @Override
+            public Object read(JsonElement config, Object context, Object edtCtx) {
+                return EditorDouble.clamp(EditorDouble.parseConfig(config, dflt), min, max);
+            }
+        };
+    }
+
+    private static ValueReader forString(String dflt) {
+        return new ScalarReader(dflt) {
+            @Override
+            public Object read(JsonElement config, Object context, Object edtCtx) {
+                return EditorString.parseConfig(config, dflt);
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ValueReader forEnum(Field field) {
+        final EdOptsEnum annotation = getAnnotation(field, EdOptsEnum.class);
+        final Class sourceType = annotation.sourceType();
+        final Enum dflt = EditorEnum.findDefault(annotation);
+        return new ScalarReader(dflt) {
+            @Override
+            public Object read(JsonElement config, Object context, Object edtCtx) {
+                return EditorEnum.parseConfig(config, sourceType, dflt, dflt);
+            }
+        };
+    }
+
+    private static ValueReader forBigDecimal(Field field) {
+        final BigDecimal dflt = EditorBigDecimal.findDefault(getAnnotation(field, EdOptsBigDecimal.class));
+        return new ScalarReader(dflt) {
+            @Override
+            public Object read(JsonElement config, Object context, Object edtCtx) {
+                return EditorBigDecimal.parseConfig(config, dflt);
+            }
+        };
+    }
+
+    private static ValueReader forColor(Field field) {
+        final Color initial = EditorColor.findInitial(getAnnotation(field, EdOptsColor.class));
+        final Color dflt = EditorColor.DEFAULT_COLOR;
+        return new ScalarReader(dflt) {
+            @Override
+            public Object read(JsonElement config, Object context, Object edtCtx) {
+                return EditorColor.parseConfig(config, dflt, initial);
+            }
+
+            @Override
+            public Object readUnconfigured(Object context, Object edtCtx) {
+                return initial;
+            }
+        };
+    }
+
+    private static ValueReader forList(Field field, String key) {
+        final EdOptsList annotation = EditorList.findAnnotation(field, key);
+        return new ListReader(forEditor(annotation.editor(), field, annotation.editorKey()), annotation.minCount(), annotation.maxCount());
+    }
+
+    /**
+     * A reader for editors with a fixed default value.
+     */
+    private abstract static class ScalarReader implements ValueReader {
+
+        private final Object dflt;
+
+        private ScalarReader(Object dflt) {
+            this.dflt = dflt;
+        }
+
+        @Override
+        public Object readDefault(Object context, Object edtCtx) {
+            return dflt;
+        }
+    }
+
+    private static final class NullReader implements ValueReader {
+
+        @Override
+        public Object read(JsonElement config, Object context, Object edtCtx) {
+            return null;
+        }
+
+        @Override
+        public Object readDefault(Object context, Object edtCtx) {
+            return null;
+        }
+    }
+
+    /**
+     * Mirrors EditorClass.
+     */
+    private static final class ClassReader implements ValueReader {
+
+        private final Class<?> clazz;
+        private final boolean dfltIsNull;
+        private final boolean lazy;
+
+        private ClassReader(Class<?> clazz, boolean dfltIsNull, boolean lazy) {
+            this.clazz = clazz;
+            this.dfltIsNull = dfltIsNull;
+            this.lazy = lazy;
+        }
+
+        @Override
+        public Object read(JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+            if (lazy) {
+                final JsonElement copy = config == null ? null : config.deepCopy();
+                return LazyProxies.create(clazz, () -> ConfigBinder.instantiateClass(clazz, copy, context, edtCtx));
+            }
+            return ConfigBinder.instantiateClass(clazz, config, context, edtCtx);
+        }
+
+        @Override
+        public Object readStream(JsonReader in, Object context, Object edtCtx) throws IOException, ConfigurationException {
+            if (lazy) {
+                return read(JsonParser.parseReader(in), context, edtCtx);
+            }
+            return ConfigBinder.instantiateClass(clazz, in, context, edtCtx);
+        }
+
+        @Override
+        public Object readDefault(Object context, Object edtCtx) throws ConfigurationException {
+            if (dfltIsNull) {
+                return null;
+            }
+            return read(null, context, edtCtx);
+        }
+    }
+
+    /**
+     * Mirrors EditorSubclass, including the way it resolves class names. When
+     * streaming, the configuration of the class is streamed once the class
+     * name is known. Configuration that comes before the class name is
+     * buffered.
+     */
+    private static final class SubclassReader implements ValueReader {
+
+        private final Class<?> iface;
+        private final Class<? extends Annotation> requiredAnnotation;
+        private final List<Class<? extends Annotation>> allowList;
+        private final List<Class<? extends Annotation>> denyList;
+        private final boolean shortenClassNames;
+        private final boolean merge;
+        private final String nameField;
+        private final boolean lazy;
+        private volatile SubclassCatalog catalog;
+
+        private SubclassReader(
+                Class<?> iface,
+                Class<? extends Annotation> requiredAnnotation,
+                List<Class<? extends Annotation>> allowList,
+                List<Class<? extends Annotation>> denyList,
+                boolean shortenClassNames,
+                boolean merge,
+                String nameField,
+                boolean lazy) {
+            this.iface = iface;
+            this.requiredAnnotation = requiredAnnotation;
+            this.allowList = allowList;
+            this.denyList = denyList;
+            this.shortenClassNames = shortenClassNames;
+            this.merge = merge;
+            this.nameField = nameField;
+            this.lazy = lazy;
+        }
+
+        @Override
+        public Object read(JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+            if (config == null || !config.isJsonObject()) {
+                return null;
+            }
+            final JsonObject confObj = config.getAsJsonObject();
+            final String name = EditorSubclass.findClassName(confObj, merge, nameField);
+            return instantiate(Utils.isNullOrEmpty(name) ? null : name, EditorSubclass.findClassConfig(confObj, merge), context, edtCtx);
+        }
+
+        @Override
+        public Object readStream(JsonReader in, Object context, Object edtCtx) throws IOException, ConfigurationException {
+            if (lazy || in.peek() != JsonToken.BEGIN_OBJECT) {
+                return read(JsonParser.parseReader(in), context, edtCtx);
+            }
+            in.beginObject();
+            if (merge) {
+                return readMerged(in, context, edtCtx);
+            }
+            JsonElement classNameElem = null;
+            JsonElement classConfig = null;
+            Object instance = null;
+            boolean streamed = false;
+            while (in.hasNext()) {
+                final String name = in.nextName();
+                if (EditorSubclass.KEY_CLASSNAME.equals(name)) {
+                    classNameElem = JsonParser.parseReader(in);
+                } else if (EditorSubclass.KEY_CLASSCONFIG.equals(name) && classNameElem != null && !streamed) {
+                    final String className = getName(classNameElem);
+                    if (className == null) {
+                        in.skipValue();
+                        continue;
+                    }
+                    final ConfigurableFactory factory = ConfigBinder.findFactory(context, edtCtx);
+                    instance = ConfigBinder.instantiateSubclass(loadClass(className, factory), className, in, context, edtCtx, factory);
+                    streamed = true;
+                } else if (EditorSubclass.KEY_CLASSCONFIG.equals(name)) {
+                    classConfig = JsonParser.parseReader(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            if (streamed) {
+                return instance;
+            }
+            return instantiate(getName(classNameElem), classConfig, context, edtCtx);
+        }
+
+        private Object readMerged(JsonReader in, Object context, Object edtCtx) throws IOException, ConfigurationException {
+            final JsonObject buffered = new JsonObject();
+            while (in.hasNext()) {
+                final String name = in.nextName();
+                final JsonElement value = JsonParser.parseReader(in);
+                buffered.add(name, value);
+                if (nameField.equals(name)) {
+                    final String className = getName(value);
+                    if (className == null) {
+                        break;
+                    }
+                    final ConfigurableFactory factory = ConfigBinder.findFactory(context, edtCtx);
+                    return ConfigBinder.instantiateSubclassMerged(loadClass(className, factory), className, buffered, in, context, edtCtx, factory);
+                }
+            }
+            while (in.hasNext()) {
+                in.nextName();
+                in.skipValue();
+            }
+            in.endObject();
+            return null;
+        }
+
+        private static String getName(JsonElement classNameElem) {
+            if (classNameElem == null || !classNameElem.isJsonPrimitive()) {
+                return null;
+            }
+            final String name = classNameElem.getAsString();
+            return Utils.isNullOrEmpty(name) ? null : name;
+        }
+
+        private Object instantiate(String name, JsonElement classConfig, Object context, Object edtCtx) throws ConfigurationException {
+            if (name == null) {
+                return null;
+            }
+            final ConfigurableFactory factory = ConfigBinder.findFactory(context, edtCtx);
+            final Class<?> type = loadClass(name, factory);
+            if (lazy && LazyProxies.canProxy(type)) {
+                final JsonElement copy = classConfig == null ? null : classConfig.deepCopy();
+                return LazyProxies.create(type, () -> ConfigBinder.instantiateSubclass(type, name, copy, context, edtCtx, factory));
+            }
+            return ConfigBinder.instantiateSubclass(type, name, classConfig, context, edtCtx, factory);
+        }
+
+        private Class<?> loadClass(String name, ConfigurableFactory factory) throws ConfigurationException {
+            try {
+                return factory == null ? getCatalog().loadClass(name) : factory.loadClass(name);
+            } catch (ClassNotFoundException exc) {
+                throw new ConfigurationException(exc);
+            }
+        }
+
+
+        private SubclassCatalog getCatalog() {
+            SubclassCatalog result = catalog;
+            if (result == null) {
+                result = SubclassCatalog.getCatalog(iface, requiredAnnotation, allowList, denyList, shortenClassNames);
+                catalog = result;
+            }
+            return result;
+        }
+
+        @Override
+        public Object readDefault(Object context, Object edtCtx) {
+            return null;
+        }
+    }
+
+    /**
+     * Mirrors EditorList.
+     */
+    private static final class ListReader implements ValueReader {
+
+        private final ValueReader itemReader;
+        private final int minCount;
+        private final int maxCount;
+
+        private ListReader(ValueReader itemReader, int minCount, int maxCount) {
+            this.itemReader = itemReader;
+            this.minCount = minCount;
+            this.maxCount = maxCount;
+        }
+
+        @Override
+        public Object read(JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+            final List<Object> result = new ArrayList<>();
+            for (JsonElement subConf : EditorList.findItemConfigs(config, maxCount)) {
+                result.add(itemReader.read(subConf, context, edtCtx));
+            }
+            return fill(result, context, edtCtx);
+        }
+
+        @Override
+        public Object readStream(JsonReader in, Object context, Object edtCtx) throws IOException, ConfigurationException {
+            if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                return read(JsonParser.parseReader(in), context, edtCtx);
+            }
+            final List<Object> result = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                if (result.size() >= maxCount) {
+                    in.skipValue();
+                } else {
+                    result.add(itemReader.readStream(in, context, edtCtx));
+                }
+            }
+            in.endArray();
+            return fill(result, context, edtCtx);
+        }
+
+        private List<Object> fill(List<Object> result, Object context, Object edtCtx) throws ConfigurationException {
+            while (result.size() < minCount) {
+                result.add(itemReader.readUnconfigured(context, edtCtx));
+            }
+            return result;
+        }
+
+        @Override
+        public Object readDefault(Object context, Object edtCtx) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Object readUnconfigured(Object context, Object edtCtx) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads values by creating the editor, for editors that have no dedicated
+     * reader. Editors that can not be instantiated are skipped, the same way
+     * AnnotationHelper skips them.
+     */
+    private static final class EditorReader implements ValueReader {
+
+        @SuppressWarnings("rawtypes")
+        private final Class<? extends ConfigEditor> editorClass;
+        private final Field field;
+        private final String key;
+
+        @SuppressWarnings("rawtypes")
+        private EditorReader(Class<? extends ConfigEditor> editorClass, Field field, String key) {
+            this.editorClass = editorClass;
+            this.field = field;
+            this.key = key;
+        }
+
+        private ConfigEditor<?> createEditor(Object context, Object edtCtx) {
+            try {
+                if (key == null) {
+                    return AnnotationHelper.createEditor(editorClass, field, context, edtCtx);
+                }
+                return AnnotationHelper.createEditor(editorClass, field, context, edtCtx, key);
+            } catch (ReflectiveOperationException exc) {
+                LOGGER.error("could not instantiate give editor: {}", editorClass);
+                LOGGER.info("Exception", exc);
+                return null;
+            }
+        }
+
+        @Override
+        public Object read(JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
+            final ConfigEditor<?> editor = createEditor(context, edtCtx);
+            if (editor == null) {
+                return null;
+            }
+            editor.setConfig(config);
+            return editor.getValue();
+        }
+
+        @Override
+        public Object readDefault(Object context, Object edtCtx) throws ConfigurationException {
+            final ConfigEditor<?> editor = createEditor(context, edtCtx);
+            if (editor == null) {
+                return null;
+            }
+            editor.setConfig(null);
+            return editor.getDefaultValue();
+        }
+
+        @Override
+        public Object readUnconfigured(Object context, Object edtCtx) throws ConfigurationException {
+            final ConfigEditor<?> editor = createEditor(context, edtCtx);
+            if (editor == null) {
+                return null;
+            }
+            return editor.getValue();
+        }
+    }
+}
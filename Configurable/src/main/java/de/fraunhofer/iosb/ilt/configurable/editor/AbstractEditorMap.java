@@ -18,7 +18,6 @@
 package de.fraunhofer.iosb.ilt.configurable.editor;
 
 import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.csvToReadOnlySet;
-import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.hasConfigurableConstructorParameter;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -29,22 +28,20 @@ import de.fraunhofer.iosb.ilt.configurable.GuiFactorySwing;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.ItemObject;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.RootSchema;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.SchemaItem;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.FieldPlan;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableBinder;
 import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableField;
 import de.fraunhofer.iosb.ilt.configurable.editor.fx.FactoryMapFx;
 import de.fraunhofer.iosb.ilt.configurable.editor.swing.FactoryMapSwing;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import org.apache.commons.lang3.reflect.FieldUtils;
-import org.apache.commons.lang3.reflect.MethodUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,6 +68,11 @@ public abstract class AbstractEditorMap<T, V> extends EditorDefault<T> implement
 
         public Item(final String fieldName, final String jsonName, final ConfigEditor<V> editor, final boolean optional,
                 final int colwidth, final boolean merge, final String profilesSave, final String profilesGui) {
+            this(fieldName, jsonName, editor, optional, colwidth, merge, csvToReadOnlySet(profilesSave), csvToReadOnlySet(profilesGui));
+        }
+
+        public Item(final String fieldName, final String jsonName, final ConfigEditor<V> editor, final boolean optional,
+                final int colwidth, final boolean merge, final Set<String> profilesSave, final Set<String> profilesGui) {
             this.fieldName = fieldName;
             this.jsonName = jsonName;
             final String edLabel = editor.getLabel();
@@ -83,8 +85,8 @@ public abstract class AbstractEditorMap<T, V> extends EditorDefault<T> implement
             this.optional = optional;
             this.colwidth = colwidth;
             this.merge = merge;
-            this.profilesSave = csvToReadOnlySet(profilesSave);
-            this.profilesGui = csvToReadOnlySet(profilesGui);
+            this.profilesSave = profilesSave;
+            this.profilesGui = profilesGui;
         }
 
         public String getName() {
@@ -129,6 +131,11 @@ public abstract class AbstractEditorMap<T, V> extends EditorDefault<T> implement
 
     private FactoryMapSwing factorySwing;
     private FactoryMapFx factoryFx;
+    /**
+     * The generated binder that created this map, if any. Reset when options
+     * are added to the map after the binder created it.
+     */
+    private ConfigurableBinder<?> binder;
 
     protected AbstractEditorMap() {
         columns = 1;
@@ -180,10 +187,17 @@ public abstract class AbstractEditorMap<T, V> extends EditorDefault<T> implement
     public void addOption(final String fieldName, final String jsonName, final ConfigEditor editor,
             final boolean optional, final int width, final boolean merge, final String profilesSave,
             final String profilesGui) {
+        addOption(fieldName, jsonName, editor, optional, width, merge, csvToReadOnlySet(profilesSave), csvToReadOnlySet(profilesGui));
+    }
+
+    public void addOption(final String fieldName, final String jsonName, final ConfigEditor<?> editor,
+            final boolean optional, final int width, final boolean merge, final Set<String> profilesSave,
+            final Set<String> profilesGui) {
         if (options.containsKey(jsonName)) {
             throw new IllegalArgumentException("Map already contains an editor for " + jsonName);
         }
         editor.setProfile(profile);
+        binder = null;
         final Item item = new Item<>(fieldName, jsonName, editor, optional, width, merge, profilesSave, profilesGui);
         options.put(jsonName, item);
         if (optional) {
@@ -199,6 +213,12 @@ public abstract class AbstractEditorMap<T, V> extends EditorDefault<T> implement
                 annotation.profilesSave(), annotation.profilesGui());
     }
 
+    public void addOption(final FieldPlan fieldPlan, final ConfigEditor<?> editor) {
+        final ConfigurableField annotation = fieldPlan.getAnnotation();
+        this.addOption(fieldPlan.getFieldName(), fieldPlan.getJsonName(), editor, annotation.optional(), 1, annotation.merge(),
+                fieldPlan.getProfilesSave(), fieldPlan.getProfilesGui());
+    }
+
     @Override
     public void setConfig(final JsonElement config) {
         value.clear();
@@ -337,57 +357,101 @@ public abstract class AbstractEditorMap<T, V> extends EditorDefault<T> implement
 
     /**
      * For each of the keys in the map, tries set the value of the field on the
-     * target object. It first tries to set the field with the fieldName
-     * directly. If that does not work, it tries to call the setter
-     * set{fieldName}(fieldValue) on the target.
+     * target object. It first tries to call the setter
+     * set{fieldName}(fieldValue) on the target. If that does not work, it tries
+     * to set the field with the fieldName directly. If this map was created by
+     * the generated binder of the class of the target, the binder is used.
+     * Otherwise the setters and fields are resolved once per class, using the
+     * {@link ClassBindingPlan}.
      *
      * @param target The target to set the fields, or call the setters on.
      * @throws ConfigurationException if any of the values could not be loaded.
      */
+    @SuppressWarnings("unchecked")
     public void setContentsOn(final Object target) throws ConfigurationException {
+        if (binder != null && binder.getType() == target.getClass()) {
+            ((ConfigurableBinder<Object>) binder).setContentsOn(this, target);
+            return;
+        }
+        final ClassBindingPlan plan = ClassBindingPlan.of(target.getClass());
         for (Entry<String, Item<V>> entry : options.entrySet()) {
             final String itemName = entry.getKey();
             final Item<V> item = entry.getValue();
-            if (hasConfigurableConstructorParameter(target, item.fieldName)) {
+            if (plan.isConstructorParameter(item.fieldName)) {
                 continue;
             }
-            final Object val;
-            if (value.contains(itemName)) {
-                val = item.editor.getValue();
-            } else {
-                val = item.editor.getDefaultValue();
-            }
+            final Object val = getValueOrDefault(itemName);
             if (val == null) {
                 continue;
             }
-            final String fieldName = item.fieldName;
-
-            final String methodName = "set" + fieldName.substring(0, 1).toUpperCase(Locale.ROOT)
-                    + fieldName.substring(1);
-            if (AbstractEditorMap.callMethodOn(methodName, target, val)) {
-                // using setting worked.
-                continue;
+            if (!plan.getWriter(item.fieldName).write(target, val)) {
+                LOGGER.warn("Could not set field {} on {}.", item.fieldName, target.getClass().getName());
             }
+        }
+    }
 
-            final Field field = FieldUtils.getField(target.getClass(), fieldName, true);
-            try {
-                FieldUtils.writeField(field, target, val, true);
-                continue;
-            } catch (final IllegalAccessException ex) {
-                LOGGER.trace("Exception:", ex);
-            }
-            LOGGER.warn("Could not set field {}.", field);
+    /**
+     * Get the value of the option with the given name if it is set, or the
+     * default value of the option if it is not.
+     *
+     * @param name The (json) name of the option.
+     * @return The value of the option, or null if there is no option with the
+     * given name.
+     * @throws ConfigurationException if the value could not be loaded.
+     */
+    public Object getValueOrDefault(final String name) throws ConfigurationException {
+        final Item<V> item = options.get(name);
+        if (item == null) {
+            return null;
+        }
+        if (value.contains(name)) {
+            return item.editor.getValue();
         }
+        return item.editor.getDefaultValue();
+    }
+
+    /**
+     * The generated binder that created this map.
+     *
+     * @return The binder that created this map, or null.
+     */
+    public ConfigurableBinder<?> getBinder() {
+        return binder;
     }
 
-    private static boolean callMethodOn(final String methodName, final Object target, final Object val) {
-        try {
-            MethodUtils.invokeMethod(target, methodName, val);
-            return true;
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException exc) {
-            LOGGER.debug("Failed call method {} on {}.", methodName, target.getClass().getName());
-            return false;
+    /**
+     * Set the generated binder that created this map, after it added all
+     * options. Adding options after this resets the binder.
+     *
+     * @param binder The binder that created this map.
+     */
+    public void setBinder(ConfigurableBinder<?> binder) {
+        this.binder = binder;
+    }
+
+    /**
+     * Copy the settings, options and selected options of this map into the
+     * given, empty, map. The editors of the options are copied using
+     * {@link ConfigEditor#copy()}.
+     *
+     * @param <M> The type of the map to copy into.
+     * @param copy The empty map to copy into.
+     * @return The given map.
+     */
+    protected <M extends AbstractEditorMap<T, V>> M copyTo(M copy) {
+        copyLabels(copy);
+        final AbstractEditorMap<T, V> target = copy;
+        target.profilesEdit = profilesEdit;
+        target.profile = profile;
+        for (Item<V> item : options.values()) {
+            final Item<V> itemCopy = new Item<>(item.fieldName, item.jsonName, item.editor.copy(), item.optional,
+                    item.colwidth, item.merge, item.profilesSave, item.profilesGui);
+            target.options.put(item.jsonName, itemCopy);
         }
+        target.optionalOptions.addAll(optionalOptions);
+        target.value.addAll(value);
+        target.binder = binder;
+        return copy;
     }
 
     @Override
@@ -123,21 +123,52 @@ public class EditorBigDecimal extends EditorDefault<BigDecimal> {
         }
         min = fromDouble(annotation.min());
         max = fromDouble(annotation.max());
-        if (!annotation.dfltIsNull()) {
-            dflt = new BigDecimal(annotation.dflt());
-        }
+        dflt = findDefault(annotation);
         value = dflt;
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
     }
 
+    /**
+     * Find the default value from the given annotation.
+     *
+     * @param annotation The annotation of the field.
+     * @return The default value.
+     */
+    public static BigDecimal findDefault(EdOptsBigDecimal annotation) {
+        return annotation.dfltIsNull() ? null : new BigDecimal(annotation.dflt());
+    }
+
+    @Override
+    public EditorBigDecimal copy() {
+        checkCopyable(EditorBigDecimal.class);
+        final EditorBigDecimal copy = copyLabels(new EditorBigDecimal());
+        copy.min = min;
+        copy.max = max;
+        copy.dflt = dflt;
+        copy.value = value;
+        copy.profilesEdit = profilesEdit;
+        copy.profile = profile;
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
+        value = parseConfig(config, dflt);
+        fillComponent();
+    }
+
+    /**
+     * Parse the value from the given configuration, the way setConfig does.
+     *
+     * @param config The configuration to parse.
+     * @param dflt The default value, used when the configuration has no value.
+     * @return The parsed value.
+     */
+    public static BigDecimal parseConfig(JsonElement config, BigDecimal dflt) {
         if (config != null && config.isJsonPrimitive()) {
-            value = config.getAsBigDecimal();
-        } else {
-            value = dflt;
+            return config.getAsBigDecimal();
         }
-        fillComponent();
+        return dflt;
     }
 
     @Override
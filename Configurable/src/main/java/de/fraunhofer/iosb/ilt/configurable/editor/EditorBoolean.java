@@ -105,34 +105,63 @@ public final class EditorBoolean extends EditorDefault<Boolean> {
         if (annotation == null) {
             throw new IllegalArgumentException("Field must have an EdOptsBool annotation to use this editor: " + field.getName());
         }
-        final boolean isPrimitive = field.getType().isPrimitive();
-        final boolean dfltIsNull = annotation.dfltIsNull();
-        if (dfltIsNull) {
-            if (isPrimitive) {
-                LOGGER.error("Flag dfltIsNull set to true on a primitive field: {}", field);
-                dflt = false;
-            }
-        } else {
-            dflt = annotation.dflt();
-        }
+        dflt = findDefault(field, annotation);
         value = dflt;
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
     }
 
+    /**
+     * Find the default value of the given field, from its annotation.
+     *
+     * @param field The field to find the default value of.
+     * @param annotation The annotation of the field.
+     * @return The default value.
+     */
+    public static Boolean findDefault(Field field, EdOptsBool annotation) {
+        if (!annotation.dfltIsNull()) {
+            return annotation.dflt();
+        }
+        if (field.getType().isPrimitive()) {
+            LOGGER.error("Flag dfltIsNull set to true on a primitive field: {}", field);
+            return false;
+        }
+        return null;
+    }
+
+    @Override
+    public EditorBoolean copy() {
+        final EditorBoolean copy = copyLabels(new EditorBoolean());
+        copy.dflt = dflt;
+        copy.value = value;
+        copy.profilesEdit = profilesEdit;
+        copy.profile = profile;
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
+        value = parseConfig(config, dflt);
+        fillComponent();
+    }
+
+    /**
+     * Parse the value from the given configuration, the way setConfig does.
+     *
+     * @param config The configuration to parse.
+     * @param dflt The default value, used when the configuration has no value.
+     * @return The parsed value.
+     */
+    public static Boolean parseConfig(JsonElement config, Boolean dflt) {
+        if (config == null) {
+            return dflt;
+        }
         try {
-            if (config == null) {
-                value = dflt;
-            } else {
-                value = config.getAsBoolean();
-            }
+            return config.getAsBoolean();
         } catch (ClassCastException | IllegalStateException e) {
-            value = dflt;
             LOGGER.trace("", e);
             LOGGER.debug("Value is not a boolean: {}.", config.toString());
+            return dflt;
         }
-        fillComponent();
     }
 
     @Override
@@ -18,6 +18,7 @@
 package de.fraunhofer.iosb.ilt.configurable.editor;
 
 import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.getConfigurableConstructor;
+import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.injectContexts;
 import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.instantiateFrom;
 
 import com.google.gson.JsonElement;
@@ -26,11 +27,15 @@ import de.fraunhofer.iosb.ilt.configurable.ConfigEditors;
 import de.fraunhofer.iosb.ilt.configurable.Configurable;
 import de.fraunhofer.iosb.ilt.configurable.ConfigurableFactory;
 import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.ContextAwareEditor;
 import de.fraunhofer.iosb.ilt.configurable.GuiFactoryFx;
 import de.fraunhofer.iosb.ilt.configurable.GuiFactorySwing;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.ItemRef;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.RootSchema;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.SchemaItem;
+import de.fraunhofer.iosb.ilt.configurable.Utils;
+import de.fraunhofer.iosb.ilt.configurable.annotations.LazyProxies;
+import de.fraunhofer.iosb.ilt.configurable.annotations.SharedInstances;
 import de.fraunhofer.iosb.ilt.configurable.editor.fx.FactoryClassFx;
 import de.fraunhofer.iosb.ilt.configurable.editor.swing.FactoryClassSwing;
 import java.lang.annotation.ElementType;
@@ -53,7 +58,7 @@ import org.slf4j.LoggerFactory;
  * @param <D> The class type that provides context while editing.
  * @param <T> The type of object returned by getValue.
  */
-public final class EditorClass<C, D, T> extends EditorDefault<T> {
+public final class EditorClass<C, D, T> extends EditorDefault<T> implements ContextAwareEditor<C, D> {
 
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.FIELD)
@@ -74,14 +79,34 @@ public final class EditorClass<C, D, T> extends EditorDefault<T> {
          * @return if true, the default value of the editor is null.
          */
         boolean dfltIsNull() default false;
+
+        /**
+         * If true, getValue returns a proxy that creates and configures the
+         * class when the first method is called on it. The proxy implements
+         * all interfaces of the class, so the field, or the elements of a
+         * collection field, must be typed by one of them. Ignored, with a
+         * warning, if this is not the case.
+         *
+         * @return true if the instance should be created when first used.
+         */
+        boolean lazy() default false;
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EditorClass.class);
 
     private Class<T> clazz;
     private boolean dfltIsNull;
+    private boolean lazy;
     private JsonElement classConfig;
     private ConfigEditor classEditor;
+    /**
+     * The instance created by the last getValue, and the hash of the class
+     * configuration it was created from. While the hash of the configuration
+     * is unchanged, getValue returns this instance instead of creating a new
+     * one.
+     */
+    private T instance;
+    private long instanceHash;
 
     private String profile = DEFAULT_PROFILE_NAME;
 
@@ -126,11 +151,31 @@ public final class EditorClass<C, D, T> extends EditorDefault<T> {
         }
         clazz = (Class<T>) annotation.clazz();
         dfltIsNull = annotation.dfltIsNull();
+        lazy = annotation.lazy() && LazyProxies.useLazyFor(field, clazz);
     }
 
+    @Override
     public final void setContexts(final C context, final D edtCtx) {
         this.context = context;
         this.edtCtx = edtCtx;
+        instance = null;
+        if (classEditor != null) {
+            injectContexts(classEditor, context, edtCtx);
+        }
+    }
+
+    @Override
+    public EditorClass<C, D, T> copy() {
+        final EditorClass<C, D, T> copy = copyLabels(new EditorClass<>());
+        copy.clazz = clazz;
+        copy.dfltIsNull = dfltIsNull;
+        copy.lazy = lazy;
+        copy.profile = profile;
+        copy.context = context;
+        copy.edtCtx = edtCtx;
+        copy.classConfig = classConfig == null ? null : classConfig.deepCopy();
+        copy.classEditor = classEditor == null ? null : classEditor.copy();
+        return copy;
     }
 
     @Override
@@ -188,15 +233,15 @@ public final class EditorClass<C, D, T> extends EditorDefault<T> {
     public void initClass() {
         classEditor = ConfigEditors.buildEditorFromClass(clazz, context, edtCtx).orElse(null);
         if (classEditor == null) {
-            Object instance = null;
+            Object protoInstance = null;
             try {
-                instance = findFactory(context, edtCtx).instantiate(clazz, classConfig, context, edtCtx);
+                protoInstance = findFactory(context, edtCtx).instantiate(clazz, classConfig, context, edtCtx);
             } catch (final ConfigurationException exc) {
                 throw new RuntimeException(exc);
             }
 
-            if (instance instanceof Configurable) {
-                final Configurable confInstance = (Configurable) instance;
+            if (protoInstance instanceof Configurable) {
+                final Configurable confInstance = (Configurable) protoInstance;
                 classEditor = confInstance.getConfigEditor(context, edtCtx);
             } else {
                 LOGGER.warn("Class {} is not configurable.", clazz);
@@ -247,9 +292,25 @@ public final class EditorClass<C, D, T> extends EditorDefault<T> {
     @Override
     public T getValue() throws ConfigurationException {
         readComponent();
-        return tryToInstantiate();
+        final long configHash = Utils.jsonHash(classConfig);
+        if (instance != null && configHash == instanceHash) {
+            return instance;
+        }
+        final T newInstance = tryToInstantiate();
+        instance = newInstance;
+        instanceHash = configHash;
+        return newInstance;
     }
 
+    /**
+     * The default value: null if dfltIsNull is set, otherwise an instance
+     * created from the current configuration. Like the value, the default
+     * instance is created once, and returned again while the configuration
+     * is unchanged.
+     *
+     * @return The default value.
+     * @throws ConfigurationException If the instance can not be created.
+     */
     @Override
     public T getDefaultValue() throws ConfigurationException {
         if (dfltIsNull) {
@@ -259,20 +320,33 @@ public final class EditorClass<C, D, T> extends EditorDefault<T> {
     }
 
     private T tryToInstantiate() throws ConfigurationException {
-        try {
-            return instantiate();
-        } catch (ReflectiveOperationException | IllegalArgumentException exc) {
-            throw new ConfigurationException(exc);
+        if (lazy) {
+            // The proxy uses the state of this moment, not that of its first use.
+            final JsonElement config = classConfig == null ? null : classConfig.deepCopy();
+            final C ctx = context;
+            final D edt = edtCtx;
+            return LazyProxies.create(clazz, () -> tryToInstantiate(config, ctx, edt));
         }
+        return tryToInstantiate(classConfig, context, edtCtx);
+    }
+
+    private T tryToInstantiate(final JsonElement config, final C context, final D edtCtx) throws ConfigurationException {
+        return SharedInstances.intern(clazz, config, context, edtCtx, () -> {
+            try {
+                return instantiate(config, context, edtCtx);
+            } catch (ReflectiveOperationException | IllegalArgumentException exc) {
+                throw new ConfigurationException(exc);
+            }
+        });
     }
 
-    private T instantiate() throws ReflectiveOperationException, ConfigurationException, IllegalArgumentException {
+    private T instantiate(final JsonElement config, final C context, final D edtCtx) throws ReflectiveOperationException, ConfigurationException, IllegalArgumentException {
         final ConfigurableFactory factory = findFactory(context, edtCtx);
         final Optional<Constructor<?>> configurableConstructor = getConfigurableConstructor(clazz);
         if (configurableConstructor.isPresent()) {
-            return instantiateFrom(configurableConstructor.get(), classConfig, context, edtCtx);
+            return instantiateFrom(configurableConstructor.get(), config, context, edtCtx);
         }
-        return (T) factory.instantiate(clazz, classConfig, context, edtCtx);
+        return (T) factory.instantiate(clazz, config, context, edtCtx);
     }
 
     @Override
@@ -310,7 +384,7 @@ public final class EditorClass<C, D, T> extends EditorDefault<T> {
             }
             if (newInstance instanceof Configurable) {
                 Configurable confInstance = (Configurable) newInstance;
-                confInstance.configure(classConfig, context, edtCtx, null);
+                confInstance.configure(config, context, edtCtx, null);
             }
             return newInstance;
         }
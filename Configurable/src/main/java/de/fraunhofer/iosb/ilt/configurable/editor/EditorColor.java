@@ -92,6 +92,12 @@ public class EditorColor extends EditorDefault<Color> {
         String profilesEdit() default "";
     }
 
+    /**
+     * The default value of editors that are not given a default, including
+     * the editors created for annotated fields.
+     */
+    public static final Color DEFAULT_COLOR = Color.BLACK;
+
     private Color dflt;
     private boolean editAlpla = true;
     private int red;
@@ -106,7 +112,7 @@ public class EditorColor extends EditorDefault<Color> {
     private FactoryColorFx factoryFx;
 
     public EditorColor() {
-        this.dflt = Color.BLACK;
+        this.dflt = DEFAULT_COLOR;
         resetToDefault();
     }
 
@@ -127,10 +133,25 @@ public class EditorColor extends EditorDefault<Color> {
     }
 
     private void resetToDefault() {
-        this.red = dflt.getRed();
-        this.green = dflt.getGreen();
-        this.blue = dflt.getBlue();
-        this.alpha = dflt.getAlpha();
+        setComponents(dflt);
+    }
+
+    private void setComponents(Color color) {
+        this.red = color.getRed();
+        this.green = color.getGreen();
+        this.blue = color.getBlue();
+        this.alpha = color.getAlpha();
+    }
+
+    /**
+     * Find the initial colour from the given annotation. Note that this is
+     * not the default value, that stays {@link #DEFAULT_COLOR}.
+     *
+     * @param annotation The annotation of the field.
+     * @return The initial colour.
+     */
+    public static Color findInitial(EdOptsColor annotation) {
+        return new Color(annotation.red(), annotation.green(), annotation.blue(), annotation.alpha());
     }
 
     @Override
@@ -140,10 +161,7 @@ public class EditorColor extends EditorDefault<Color> {
             throw new IllegalArgumentException("Field must have an EdOptsColor annotation to use this editor: " + field.getName());
         }
         editAlpla = annotation.editAlpha();
-        red = annotation.red();
-        green = annotation.green();
-        blue = annotation.blue();
-        alpha = annotation.alpha();
+        setComponents(findInitial(annotation));
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
     }
 
@@ -157,18 +175,49 @@ public class EditorColor extends EditorDefault<Color> {
         return dflt;
     }
 
+    @Override
+    public EditorColor copy() {
+        checkCopyable(EditorColor.class);
+        final EditorColor copy = copyLabels(new EditorColor());
+        copy.dflt = dflt;
+        copy.editAlpla = editAlpla;
+        copy.red = red;
+        copy.green = green;
+        copy.blue = blue;
+        copy.alpha = alpha;
+        copy.profilesEdit = profilesEdit;
+        copy.profile = profile;
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
+        setComponents(parseConfig(config, dflt, new Color(red, green, blue, alpha)));
+        fillComponent();
+    }
+
+    /**
+     * Parse the value from the given configuration, the way setConfig does.
+     *
+     * @param config The configuration to parse.
+     * @param dflt The default value, used when the configuration is null.
+     * @param current The current value, used for the components that are not
+     * in the configuration.
+     * @return The parsed value.
+     */
+    public static Color parseConfig(JsonElement config, Color dflt, Color current) {
         if (config == null) {
-            resetToDefault();
-        } else if (config.isJsonObject()) {
-            JsonObject confObj = config.getAsJsonObject();
-            red = getInt(confObj, red, "r", "red");
-            green = getInt(confObj, green, "g", "green");
-            blue = getInt(confObj, blue, "b", "blue");
-            alpha = getInt(confObj, alpha, "a", "alpha");
+            return dflt;
         }
-        fillComponent();
+        if (!config.isJsonObject()) {
+            return current;
+        }
+        final JsonObject confObj = config.getAsJsonObject();
+        return new Color(
+                getInt(confObj, current.getRed(), "r", "red"),
+                getInt(confObj, current.getGreen(), "g", "green"),
+                getInt(confObj, current.getBlue(), "b", "blue"),
+                getInt(confObj, current.getAlpha(), "a", "alpha"));
     }
 
     @Override
@@ -92,6 +92,34 @@ public abstract class EditorDefault<T> implements ConfigEditor<T> {
         this.description = description;
     }
 
+    /**
+     * Copies the label and description of this editor to the given copy.
+     *
+     * @param <E> The type of the copy.
+     * @param copy The copy to copy the label and description to.
+     * @return The given copy.
+     */
+    protected final <E extends EditorDefault<?>> E copyLabels(E copy) {
+        final EditorDefault<?> target = copy;
+        target.label = label;
+        target.description = description;
+        return copy;
+    }
+
+    /**
+     * Checks that this editor is exactly of the given class, and not a subclass
+     * that does not override {@link #copy()}.
+     *
+     * @param editorClass The class that implements the copy.
+     * @throws UnsupportedOperationException if this editor is a subclass of
+     * the given class.
+     */
+    protected final void checkCopyable(Class<?> editorClass) {
+        if (getClass() != editorClass) {
+            throw new UnsupportedOperationException("Copying not supported by " + getClass().getName());
+        }
+    }
+
     public JButton getHelpButton() {
         JButton button = new JButton("?");
         button.setMargin(new java.awt.Insets(0, 0, 0, 0));
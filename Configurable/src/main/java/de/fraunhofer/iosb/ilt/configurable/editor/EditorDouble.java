@@ -123,28 +123,61 @@ public class EditorDouble extends EditorDefault<Double> {
         min = annotation.min();
         max = annotation.max();
         step = annotation.step();
-        boolean isPrimitive = field.getType().isPrimitive();
-        final boolean dfltIsNull = annotation.dfltIsNull();
-        if (dfltIsNull) {
-            if (isPrimitive) {
-                LOGGER.error("Flag dfltIsNull set to true on a primitive field: {}", field);
-                dflt = 0D;
-            }
-        } else {
-            dflt = annotation.dflt();
-        }
+        dflt = findDefault(field, annotation);
         value = dflt;
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
     }
 
+    /**
+     * Find the default value of the given field, from its annotation.
+     *
+     * @param field The field to find the default value of.
+     * @param annotation The annotation of the field.
+     * @return The default value.
+     */
+    public static Double findDefault(Field field, EdOptsDouble annotation) {
+        if (!annotation.dfltIsNull()) {
+            return annotation.dflt();
+        }
+        if (field.getType().isPrimitive()) {
+            LOGGER.error("Flag dfltIsNull set to true on a primitive field: {}", field);
+            return 0D;
+        }
+        return null;
+    }
+
+    @Override
+    public EditorDouble copy() {
+        checkCopyable(EditorDouble.class);
+        final EditorDouble copy = copyLabels(new EditorDouble());
+        copy.min = min;
+        copy.max = max;
+        copy.step = step;
+        copy.dflt = dflt;
+        copy.value = value;
+        copy.profilesEdit = profilesEdit;
+        copy.profile = profile;
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
+        value = parseConfig(config, dflt);
+        fillComponent();
+    }
+
+    /**
+     * Parse the value from the given configuration, the way setConfig does.
+     *
+     * @param config The configuration to parse.
+     * @param dflt The default value, used when the configuration has no value.
+     * @return The parsed value.
+     */
+    public static Double parseConfig(JsonElement config, Double dflt) {
         if (config != null && config.isJsonPrimitive()) {
-            value = config.getAsDouble();
-        } else {
-            value = dflt;
+            return config.getAsDouble();
         }
-        fillComponent();
+        return dflt;
     }
 
     @Override
@@ -248,14 +281,27 @@ public class EditorDouble extends EditorDefault<Double> {
     @Override
     public Double getValue() {
         readComponent();
+        value = clamp(value, min, max);
+        return value;
+    }
+
+    /**
+     * Limit the given value to the given range.
+     *
+     * @param value The value to limit, can be null.
+     * @param min The minimum value.
+     * @param max The maximum value.
+     * @return The limited value, or null if the value is null.
+     */
+    public static Double clamp(Double value, double min, double max) {
         if (value == null) {
             return null;
         }
         if (value > max) {
-            value = max;
+            return max;
         }
         if (value < min) {
-            value = min;
+            return min;
         }
         return value;
     }
@@ -95,43 +95,85 @@ public class EditorEnum<T extends Enum<T>> extends EditorDefault<T> {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void initFor(Field field) {
         EdOptsEnum annotation = field.getAnnotation(EdOptsEnum.class);
         if (annotation == null) {
             throw new IllegalArgumentException("Field must have an EdOptsEnum annotation to use this editor: " + field.getName());
         }
         sourceType = (Class<T>) annotation.sourceType();
-        try {
-            dflt = Enum.valueOf(sourceType, annotation.dflt());
-        } catch (IllegalArgumentException exc) {
-            LOGGER.trace("Empty or invalid default: {}", annotation.dflt(), exc);
-        }
+        dflt = (T) findDefault(annotation);
         value = dflt;
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
     }
 
+    @Override
+    public EditorEnum<T> copy() {
+        checkCopyable(EditorEnum.class);
+        final EditorEnum<T> copy = copyLabels(new EditorEnum<>());
+        copy.sourceType = sourceType;
+        copy.dflt = dflt;
+        copy.value = value;
+        copy.profilesEdit = profilesEdit;
+        copy.profile = profile;
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
-        if (config != null && config.isJsonPrimitive()) {
-            JsonPrimitive prim = config.getAsJsonPrimitive();
-            if (prim.isString()) {
-                try {
-                    value = Enum.valueOf(sourceType, config.getAsString());
-                } catch (IllegalArgumentException exc) {
-                    value = null;
-                    LOGGER.trace("Empty or invalid value: {}", config.getAsString(), exc);
-                }
-            } else if (prim.isNumber()) {
-                T[] list = sourceType.getEnumConstants();
-                int ord = prim.getAsInt();
-                if (ord >= 0 && ord < list.length) {
-                    value = list[ord];
-                }
+        value = parseConfig(config, sourceType, dflt, value);
+        fillComponent();
+    }
+
+    /**
+     * Find the default value from the given annotation.
+     *
+     * @param annotation The annotation of the field.
+     * @return The default value, or null if the default is empty or invalid.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Enum<?> findDefault(EdOptsEnum annotation) {
+        try {
+            return Enum.valueOf(annotation.sourceType(), annotation.dflt());
+        } catch (IllegalArgumentException exc) {
+            LOGGER.trace("Empty or invalid default: {}", annotation.dflt(), exc);
+            return null;
+        }
+    }
+
+    /**
+     * Parse the value from the given configuration, the way setConfig does.
+     * The value can be given by name or by ordinal.
+     *
+     * @param <E> The enum type.
+     * @param config The configuration to parse.
+     * @param sourceType The enum type.
+     * @param dflt The default value, used when the configuration has no value.
+     * @param current The current value, kept when the configuration holds an
+     * invalid ordinal.
+     * @return The parsed value.
+     */
+    public static <E extends Enum<E>> E parseConfig(JsonElement config, Class<E> sourceType, E dflt, E current) {
+        if (config == null || !config.isJsonPrimitive()) {
+            return dflt;
+        }
+        final JsonPrimitive prim = config.getAsJsonPrimitive();
+        if (prim.isString()) {
+            try {
+                return Enum.valueOf(sourceType, config.getAsString());
+            } catch (IllegalArgumentException exc) {
+                LOGGER.trace("Empty or invalid value: {}", config.getAsString(), exc);
+                return null;
             }
-        } else {
-            value = dflt;
         }
-        fillComponent();
+        if (prim.isNumber()) {
+            final E[] list = sourceType.getEnumConstants();
+            final int ord = prim.getAsInt();
+            if (ord >= 0 && ord < list.length) {
+                return list[ord];
+            }
+        }
+        return current;
     }
 
     @Override
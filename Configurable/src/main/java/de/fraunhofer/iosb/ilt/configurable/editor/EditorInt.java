@@ -115,28 +115,60 @@ public final class EditorInt extends EditorDefault<Integer> {
         min = annotation.min();
         max = annotation.max();
         step = annotation.step();
-        final boolean isPrimitive = field.getType().isPrimitive();
-        final boolean dfltIsNull = annotation.dfltIsNull();
-        if (dfltIsNull) {
-            if (isPrimitive) {
-                LOGGER.error("Flag dfltIsNull set to true on a primitive field: {}", field);
-                dflt = 0;
-            }
-        } else {
-            dflt = annotation.dflt();
-        }
+        dflt = findDefault(field, annotation);
         value = dflt;
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
     }
 
+    /**
+     * Find the default value of the given field, from its annotation.
+     *
+     * @param field The field to find the default value of.
+     * @param annotation The annotation of the field.
+     * @return The default value.
+     */
+    public static Integer findDefault(Field field, EdOptsInt annotation) {
+        if (!annotation.dfltIsNull()) {
+            return annotation.dflt();
+        }
+        if (field.getType().isPrimitive()) {
+            LOGGER.error("Flag dfltIsNull set to true on a primitive field: {}", field);
+            return 0;
+        }
+        return null;
+    }
+
+    @Override
+    public EditorInt copy() {
+        final EditorInt copy = copyLabels(new EditorInt());
+        copy.min = min;
+        copy.max = max;
+        copy.step = step;
+        copy.dflt = dflt;
+        copy.value = value;
+        copy.profilesEdit = profilesEdit;
+        copy.profile = profile;
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
+        value = parseConfig(config, dflt);
+        fillComponent();
+    }
+
+    /**
+     * Parse the value from the given configuration, the way setConfig does.
+     *
+     * @param config The configuration to parse.
+     * @param dflt The default value, used when the configuration has no value.
+     * @return The parsed value.
+     */
+    public static Integer parseConfig(JsonElement config, Integer dflt) {
         if (config != null && config.isJsonPrimitive() && config.getAsJsonPrimitive().isNumber()) {
-            value = config.getAsInt();
-        } else {
-            value = dflt;
+            return config.getAsInt();
         }
-        fillComponent();
+        return dflt;
     }
 
     @Override
@@ -233,14 +265,27 @@ public final class EditorInt extends EditorDefault<Integer> {
     @Override
     public Integer getValue() {
         readComponent();
+        value = clamp(value, min, max);
+        return value;
+    }
+
+    /**
+     * Limit the given value to the given range.
+     *
+     * @param value The value to limit, can be null.
+     * @param min The minimum value.
+     * @param max The maximum value.
+     * @return The limited value, or null if the value is null.
+     */
+    public static Integer clamp(Integer value, int min, int max) {
         if (value == null) {
             return null;
         }
         if (value > max) {
-            value = max;
+            return max;
         }
         if (value < min) {
-            value = min;
+            return min;
         }
         return value;
     }
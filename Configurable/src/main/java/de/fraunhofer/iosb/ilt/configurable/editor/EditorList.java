@@ -23,6 +23,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import de.fraunhofer.iosb.ilt.configurable.ConfigEditor;
 import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.ContextAwareEditor;
 import de.fraunhofer.iosb.ilt.configurable.EditorFactory;
 import de.fraunhofer.iosb.ilt.configurable.GuiFactoryFx;
 import de.fraunhofer.iosb.ilt.configurable.GuiFactorySwing;
@@ -43,6 +44,8 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * An editor for a list of editors, all of the same type.
@@ -51,7 +54,13 @@ import java.util.Set;
  * @param <T> The type of editors that edit the items in the list.
  * @param <U> The type of items in the list.
  */
-public class EditorList<U, T extends ConfigEditor<U>> extends EditorDefault<List<U>> implements Iterable<T> {
+public class EditorList<U, T extends ConfigEditor<U>> extends EditorDefault<List<U>> implements Iterable<T>, ContextAwareEditor<Object, Object> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EditorList.class.getName());
+    /**
+     * The key of the EdOptsList annotation used when no key is given.
+     */
+    public static final String DEFAULT_KEY = "list-1";
 
     /**
      * Container for repeated EdOptsList annotations.
@@ -100,7 +109,7 @@ public class EditorList<U, T extends ConfigEditor<U>> extends EditorDefault<List
          *
          * @return The key of the configuration for this ListEditor.
          */
-        String myKey() default "list-1";
+        String myKey() default DEFAULT_KEY;
 
         /**
          * The minimum number of items the list must have.
@@ -143,8 +152,68 @@ public class EditorList<U, T extends ConfigEditor<U>> extends EditorDefault<List
         String profilesEdit() default "";
     }
 
+    /**
+     * Creates the item editors for lists configured through annotations. The
+     * first item editor is created from the annotations, and kept as a
+     * prototype. Further item editors are copies of that prototype. Item
+     * editors that do not support copying are always created from the
+     * annotations.
+     *
+     * @param <T> The type of the item editors.
+     */
+    private static final class ItemTemplate<T extends ConfigEditor<?>> {
+
+        private final Class<T> editorClass;
+        private final Field field;
+        private final String editorKey;
+        private volatile T prototype;
+        private volatile boolean copyable = true;
+
+        private ItemTemplate(Class<T> editorClass, Field field, String editorKey) {
+            this.editorClass = editorClass;
+            this.field = field;
+            this.editorKey = editorKey;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T create(Object context, Object edtCtx) {
+            final T proto = prototype;
+            if (proto != null && copyable) {
+                try {
+                    final T editor = (T) proto.copy();
+                    AnnotationHelper.injectContexts(editor, context, edtCtx);
+                    return editor;
+                } catch (UnsupportedOperationException exc) {
+                    LOGGER.debug("Item editor {} can not be copied: {}", editorClass.getName(), exc.getMessage());
+                    copyable = false;
+                }
+            }
+            final T editor;
+            try {
+                editor = AnnotationHelper.createEditor(editorClass, field, context, edtCtx, editorKey);
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalArgumentException("Can not create new editor.", ex);
+            }
+            if (proto == null && copyable) {
+                try {
+                    prototype = (T) editor.copy();
+                } catch (UnsupportedOperationException exc) {
+                    LOGGER.debug("Item editor {} can not be copied: {}", editorClass.getName(), exc.getMessage());
+                    copyable = false;
+                }
+            }
+            return editor;
+        }
+    }
+
     private Object context;
     private Object edtCtx;
+    /**
+     * Flag indicating the contexts were explicitly set, and should be passed
+     * to items created by an externally supplied factory.
+     */
+    private boolean contextsSet;
+    private ItemTemplate<T> template;
     private EditorFactory<T> factory;
     private final List<T> value = new ArrayList<>();
     private int minCount = 0;
@@ -172,71 +241,127 @@ public class EditorList<U, T extends ConfigEditor<U>> extends EditorDefault<List
     }
 
     /**
-     * The contexts to pass on to item editors. Only needed when using
-     * annotations, since then the factory is not externally supplied.
+     * The contexts to pass on to item editors. The contexts are passed to the
+     * existing items, and to all items created later.
      *
      * @param context the context.
      * @param edtCtx the edit context.
      */
+    @Override
     public final void setContexts(final Object context, final Object edtCtx) {
         this.context = context;
         this.edtCtx = edtCtx;
+        this.contextsSet = true;
+        for (T item : value) {
+            AnnotationHelper.injectContexts(item, context, edtCtx);
+        }
+    }
+
+    private T createItem() {
+        final T item = factory.createEditor();
+        if (contextsSet && template == null) {
+            // Items from the template already have the contexts of this list.
+            AnnotationHelper.injectContexts(item, context, edtCtx);
+        }
+        return item;
     }
 
     @Override
     public void initFor(final Field field) {
-        initFor(field, "list-1");
+        initFor(field, DEFAULT_KEY);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void initFor(final Field field, String key) {
-        final EdOptsList[] annotations = field.getAnnotationsByType(EdOptsList.class);
-        EdOptsList annotation = null;
-        for (EdOptsList a : annotations) {
-            if (a.myKey().equalsIgnoreCase(key)) {
-                annotation = a;
-                break;
-            }
-        }
-
-        if (annotation == null) {
-            throw new IllegalArgumentException("Field must have an EdListOpts annotation to use this editor: " + field.getName());
-        }
+        final EdOptsList annotation = findAnnotation(field, key);
         minCount = annotation.minCount();
         maxCount = annotation.maxCount();
         horizontal = annotation.horizontal();
         labelText = annotation.labelText();
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
 
-        final String editorKey = annotation.editorKey();
         // TODO: find a way to check this cast
-        final Class<T> editorClass = (Class<T>) annotation.editor();
-        factory = () -> {
-            try {
-                T editor = AnnotationHelper.createEditor(editorClass, field, context, edtCtx, editorKey);
-                return editor;
-            } catch (ReflectiveOperationException ex) {
-                throw new IllegalArgumentException("Can not create new editor.", ex);
+        template = new ItemTemplate<>((Class<T>) annotation.editor(), field, annotation.editorKey());
+        factory = createTemplateFactory();
+    }
+
+    /**
+     * Find the EdOptsList annotation with the given key on the given field.
+     *
+     * @param field The field to find the annotation on.
+     * @param key The key of the annotation.
+     * @return The annotation.
+     * @throws IllegalArgumentException if the field has no annotation with
+     * the given key.
+     */
+    public static EdOptsList findAnnotation(Field field, String key) {
+        for (EdOptsList annotation : field.getAnnotationsByType(EdOptsList.class)) {
+            if (annotation.myKey().equalsIgnoreCase(key)) {
+                return annotation;
             }
-        };
+        }
+        throw new IllegalArgumentException("Field must have an EdListOpts annotation to use this editor: " + field.getName());
+    }
+
+    private EditorFactory<T> createTemplateFactory() {
+        final ItemTemplate<T> itemTemplate = template;
+        return () -> itemTemplate.create(context, edtCtx);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public EditorList<U, T> copy() {
+        checkCopyable(EditorList.class);
+        final EditorList<U, T> copy = copyLabels(new EditorList<>());
+        copy.context = context;
+        copy.edtCtx = edtCtx;
+        copy.contextsSet = contextsSet;
+        copy.template = template;
+        copy.factory = template == null ? factory : copy.createTemplateFactory();
+        copy.minCount = minCount;
+        copy.maxCount = maxCount;
+        copy.horizontal = horizontal;
+        copy.labelText = labelText;
+        copy.profilesEdit = profilesEdit;
+        copy.profile = profile;
+        for (T item : value) {
+            copy.value.add((T) item.copy());
+        }
+        return copy;
     }
 
     @Override
     public void setConfig(JsonElement config) {
         value.clear();
+        for (JsonElement subConf : findItemConfigs(config, maxCount)) {
+            T item = createItem();
+            item.setConfig(subConf);
+            item.setProfile(profile);
+            value.add(item);
+        }
+        fillComponent();
+    }
+
+    /**
+     * Find the configurations of the items in the given configuration, the
+     * way setConfig does. Items beyond the maximum count are ignored.
+     *
+     * @param config The configuration.
+     * @param maxCount The maximum number of items.
+     * @return The configurations of the items.
+     */
+    public static List<JsonElement> findItemConfigs(JsonElement config, int maxCount) {
+        final List<JsonElement> result = new ArrayList<>();
         if (config != null && config.isJsonArray()) {
-            JsonArray asArray = config.getAsJsonArray();
-            for (JsonElement subConf : asArray) {
-                if (value.size() >= maxCount) {
+            for (JsonElement subConf : config.getAsJsonArray()) {
+                if (result.size() >= maxCount) {
                     break;
                 }
-                T item = factory.createEditor();
-                item.setConfig(subConf);
-                item.setProfile(profile);
-                value.add(item);
+                result.add(subConf);
             }
         }
-        fillComponent();
+        return result;
     }
 
     @Override
@@ -260,7 +385,7 @@ public class EditorList<U, T extends ConfigEditor<U>> extends EditorDefault<List
             rootSchema = new RootSchema(item);
             retval = rootSchema;
         }
-        item.setItems(factory.createEditor().getJsonSchema(rootSchema));
+        item.setItems(createItem().getJsonSchema(rootSchema));
         return retval;
     }
 
@@ -296,7 +421,7 @@ public class EditorList<U, T extends ConfigEditor<U>> extends EditorDefault<List
 
     private void fillComponent() {
         while (value.size() < minCount) {
-            T item = factory.createEditor();
+            T item = createItem();
             item.setProfile(profile);
             value.add(item);
         }
@@ -312,7 +437,7 @@ public class EditorList<U, T extends ConfigEditor<U>> extends EditorDefault<List
         if (value.size() >= maxCount) {
             return;
         }
-        final T item = factory.createEditor();
+        final T item = createItem();
         item.setProfile(profile);
         value.add(item);
         fillComponent();
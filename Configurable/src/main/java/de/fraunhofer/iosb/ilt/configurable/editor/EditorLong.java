@@ -109,28 +109,59 @@ public final class EditorLong extends EditorDefault<Long> {
         }
         min = annotation.min();
         max = annotation.max();
-        boolean isPrimitive = field.getType().isPrimitive();
-        final boolean dfltIsNull = annotation.dfltIsNull();
-        if (dfltIsNull) {
-            if (isPrimitive) {
-                LOGGER.error("Flag dfltIsNull set to true on a primitive field: {}", field);
-                dflt = 0L;
-            }
-        } else {
-            dflt = annotation.dflt();
-        }
+        dflt = findDefault(field, annotation);
         value = dflt;
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
     }
 
+    /**
+     * Find the default value of the given field, from its annotation.
+     *
+     * @param field The field to find the default value of.
+     * @param annotation The annotation of the field.
+     * @return The default value.
+     */
+    public static Long findDefault(Field field, EdOptsLong annotation) {
+        if (!annotation.dfltIsNull()) {
+            return annotation.dflt();
+        }
+        if (field.getType().isPrimitive()) {
+            LOGGER.error("Flag dfltIsNull set to true on a primitive field: {}", field);
+            return 0L;
+        }
+        return null;
+    }
+
+    @Override
+    public EditorLong copy() {
+        final EditorLong copy = copyLabels(new EditorLong());
+        copy.min = min;
+        copy.max = max;
+        copy.dflt = dflt;
+        copy.value = value;
+        copy.profilesEdit = profilesEdit;
+        copy.profile = profile;
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
+        value = parseConfig(config, dflt);
+        fillComponent();
+    }
+
+    /**
+     * Parse the value from the given configuration, the way setConfig does.
+     *
+     * @param config The configuration to parse.
+     * @param dflt The default value, used when the configuration has no value.
+     * @return The parsed value.
+     */
+    public static Long parseConfig(JsonElement config, Long dflt) {
         if (config != null && config.isJsonPrimitive() && config.getAsJsonPrimitive().isNumber()) {
-            value = config.getAsLong();
-        } else {
-            value = dflt;
+            return config.getAsLong();
         }
-        fillComponent();
+        return dflt;
     }
 
     @Override
@@ -229,14 +260,27 @@ public final class EditorLong extends EditorDefault<Long> {
     @Override
     public Long getValue() {
         readComponent();
+        value = clamp(value, min, max);
+        return value;
+    }
+
+    /**
+     * Limit the given value to the given range.
+     *
+     * @param value The value to limit, can be null.
+     * @param min The minimum value.
+     * @param max The maximum value.
+     * @return The limited value, or null if the value is null.
+     */
+    public static Long clamp(Long value, long min, long max) {
         if (value == null) {
             return null;
         }
         if (value > max) {
-            value = max;
+            return max;
         }
         if (value < min) {
-            value = min;
+            return min;
         }
         return value;
     }
@@ -39,6 +39,12 @@ public class EditorMap<T> extends AbstractEditorMap<Map<String, T>, T> implement
         super(columns);
     }
 
+    @Override
+    public EditorMap<T> copy() {
+        checkCopyable(EditorMap.class);
+        return copyTo(new EditorMap<>(getColumns()));
+    }
+
     @Override
     public Map<String, T> getValue() throws ConfigurationException {
         Map<String, T> result = new HashMap<>();
@@ -47,6 +47,13 @@ public class EditorNull extends EditorDefault<Void> {
         setDescription(description);
     }
 
+    @Override
+    public EditorNull copy() {
+        checkCopyable(EditorNull.class);
+        final EditorNull copy = copyLabels(new EditorNull());
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
         // Nothing to configure
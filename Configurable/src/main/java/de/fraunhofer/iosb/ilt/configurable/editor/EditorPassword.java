@@ -72,4 +72,10 @@ public class EditorPassword extends EditorString {
         setProfilesEdit(annotation.profilesEdit());
     }
 
+    @Override
+    public EditorPassword copy() {
+        checkCopyable(EditorPassword.class);
+        return copyTo(new EditorPassword());
+    }
+
 }
@@ -107,21 +107,64 @@ public class EditorString extends EditorDefault<String> {
             throw new IllegalArgumentException("Field must have an EdOptsString annotation to use this editor: " + field.getName());
         }
         lines = annotation.lines();
-        if (!annotation.dfltIsNull()) {
-            dflt = annotation.dflt();
-        }
+        dflt = findDefault(annotation);
         value = dflt;
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
     }
 
+    /**
+     * Find the default value from the given annotation.
+     *
+     * @param annotation The annotation of the field.
+     * @return The default value.
+     */
+    public static String findDefault(EdOptsString annotation) {
+        return annotation.dfltIsNull() ? null : annotation.dflt();
+    }
+
+    @Override
+    public EditorString copy() {
+        checkCopyable(EditorString.class);
+        return copyTo(new EditorString());
+    }
+
+    /**
+     * Copies the settings and value of this editor to the given copy, for use
+     * by subclasses that implement {@link #copy()}.
+     *
+     * @param <E> The type of the copy.
+     * @param copy The copy to copy the settings to.
+     * @return The given copy.
+     */
+    protected <E extends EditorString> E copyTo(E copy) {
+        copyLabels(copy);
+        final EditorString target = copy;
+        target.dflt = dflt;
+        target.value = value;
+        target.lines = lines;
+        target.profilesEdit = profilesEdit;
+        target.profile = profile;
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
+        value = parseConfig(config, dflt);
+        fillComponent();
+    }
+
+    /**
+     * Parse the value from the given configuration, the way setConfig does.
+     *
+     * @param config The configuration to parse.
+     * @param dflt The default value, used when the configuration has no value.
+     * @return The parsed value.
+     */
+    public static String parseConfig(JsonElement config, String dflt) {
         if (config != null && config.isJsonPrimitive()) {
-            value = config.getAsJsonPrimitive().getAsString();
-        } else {
-            value = dflt;
+            return config.getAsJsonPrimitive().getAsString();
         }
-        fillComponent();
+        return dflt;
     }
 
     @Override
@@ -19,6 +19,7 @@ package de.fraunhofer.iosb.ilt.configurable.editor;
 
 import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.csvToReadOnlySet;
 import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.getConfigurableConstructor;
+import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.injectContexts;
 import static de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper.instantiateFrom;
 
 import com.google.gson.JsonElement;
@@ -29,6 +30,7 @@ import de.fraunhofer.iosb.ilt.configurable.ConfigEditors;
 import de.fraunhofer.iosb.ilt.configurable.Configurable;
 import de.fraunhofer.iosb.ilt.configurable.ConfigurableFactory;
 import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.ContextAwareEditor;
 import de.fraunhofer.iosb.ilt.configurable.GuiFactoryFx;
 import de.fraunhofer.iosb.ilt.configurable.GuiFactorySwing;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.ItemObject;
@@ -36,9 +38,9 @@ import de.fraunhofer.iosb.ilt.configurable.JsonSchema.ItemRef;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.ItemString;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.RootSchema;
 import de.fraunhofer.iosb.ilt.configurable.JsonSchema.SchemaItem;
-import de.fraunhofer.iosb.ilt.configurable.Reflection;
 import de.fraunhofer.iosb.ilt.configurable.Utils;
-import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableClass;
+import de.fraunhofer.iosb.ilt.configurable.annotations.LazyProxies;
+import de.fraunhofer.iosb.ilt.configurable.annotations.SharedInstances;
 import de.fraunhofer.iosb.ilt.configurable.editor.fx.FactorySubclsFx;
 import de.fraunhofer.iosb.ilt.configurable.editor.swing.FactorySubclsSwing;
 import java.lang.annotation.Annotation;
@@ -49,13 +51,12 @@ import java.lang.annotation.Target;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,7 +69,7 @@ import org.slf4j.LoggerFactory;
  * @param <D> The class type that provides context while editing.
  * @param <T> The type of object returned by getValue.
  */
-public class EditorSubclass<C, D, T> extends EditorDefault<T> {
+public class EditorSubclass<C, D, T> extends EditorDefault<T> implements ContextAwareEditor<C, D> {
 
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.FIELD)
@@ -139,6 +140,18 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
          * @return true if class names should be shortened.
          */
         boolean shortenClassNames() default false;
+
+        /**
+         * If true, getValue returns a proxy that creates and configures the
+         * selected class when the first method is called on it. The proxy
+         * implements all interfaces of the selected class, so the field, or
+         * the elements of a collection field, must be typed by an interface
+         * that iface implements or is. Ignored, with a warning, if this is
+         * not the case.
+         *
+         * @return true if the instance should be created when first used.
+         */
+        boolean lazy() default false;
     }
 
     /**
@@ -160,8 +173,21 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
         // Empty by design.
     }
 
-    private static final String KEY_CLASSNAME = "className";
-    private static final String KEY_CLASSCONFIG = "classConfig";
+    /**
+     * The key of the class name in the configuration, unless the class name is
+     * merged into the class configuration.
+     */
+    public static final String KEY_CLASSNAME = "className";
+    /**
+     * The key of the class configuration, unless the class name is merged into
+     * the class configuration.
+     */
+    public static final String KEY_CLASSCONFIG = "classConfig";
+    /**
+     * The maximum number of editors of previously selected classes that are
+     * kept, to be restored when that class is selected again.
+     */
+    private static final int MAX_CACHED_EDITORS = 8;
     private static final Logger LOGGER = LoggerFactory.getLogger(EditorSubclass.class);
 
     public static class classItem implements Comparable<classItem> {
@@ -180,6 +206,15 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
             this.jsonName = jsonName;
         }
 
+        /**
+         * Create a copy of this classItem.
+         *
+         * @return a copy of this classItem.
+         */
+        public classItem copy() {
+            return new classItem(className, displayName, jsonName);
+        }
+
         @Override
         public String toString() {
             return displayName;
@@ -192,9 +227,10 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
 
     }
 
-    private Map<String, classItem> classesByClassName = new HashMap<>();
-    private Map<String, classItem> classesByJsonName = new HashMap<>();
-    private Map<String, classItem> classesByDisplayName = new TreeMap<>();
+    /**
+     * The (shared) catalog of classes to choose from, null until first used.
+     */
+    private SubclassCatalog catalog;
 
     /**
      * The interface or superclass that the selectable classes must
@@ -226,6 +262,11 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
      * Show the full class name in the box, not the shortened version.
      */
     private boolean shortenClassNames = false;
+    /**
+     * Flag indicating getValue returns a proxy that creates the instance when
+     * it is first used.
+     */
+    private boolean lazy = false;
 
     /**
      * Are classes restricted to the ones found after applying the allow/deny
@@ -240,7 +281,25 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
     private String jsonName = "";
     private JsonElement classConfig;
     private T instance;
+    /**
+     * The instance that was last configured by getValue, and the hash of the
+     * class configuration it was configured with. While the instance is the
+     * same and the hash of the class configuration is unchanged, getValue
+     * does not configure the instance again.
+     */
+    private T configuredInstance;
+    private long configuredHash;
     private ConfigEditor classEditor;
+    /**
+     * The editors of previously selected classes, by jsonName, least
+     * recently used first.
+     */
+    private final Map<String, ConfigEditor<?>> cachedEditors = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ConfigEditor<?>> eldest) {
+            return size() > MAX_CACHED_EDITORS;
+        }
+    };
     private C context;
     private D edtCtx;
     private String selectLabel = "Type:";
@@ -299,12 +358,19 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
         }
         restrictedClasses = annotation.restrictedClasses();
         shortenClassNames = annotation.shortenClassNames();
+        lazy = annotation.lazy() && LazyProxies.useLazyFor(field, iface);
         profilesEdit = csvToReadOnlySet(annotation.profilesEdit());
     }
 
+    @Override
     public final void setContexts(final C context, final D edtCtx) {
         this.context = context;
         this.edtCtx = edtCtx;
+        configuredInstance = null;
+        cachedEditors.clear();
+        if (classEditor != null) {
+            injectContexts(classEditor, context, edtCtx);
+        }
     }
 
     @Override
@@ -325,31 +391,78 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
         return result;
     }
 
+    @Override
+    public EditorSubclass<C, D, T> copy() {
+        checkCopyable(EditorSubclass.class);
+        final EditorSubclass<C, D, T> copy = copyLabels(new EditorSubclass<>());
+        copy.iface = iface;
+        copy.requiredAnnotation = requiredAnnotation;
+        copy.allowList = new ArrayList<>(allowList);
+        copy.denyList = new ArrayList<>(denyList);
+        copy.catalog = catalog;
+        copy.merge = merge;
+        copy.shortenClassNames = shortenClassNames;
+        copy.lazy = lazy;
+        copy.restrictedClasses = restrictedClasses;
+        copy.nameField = nameField;
+        copy.selectLabel = selectLabel;
+        copy.profilesEdit = profilesEdit;
+        copy.profile = profile;
+        copy.context = context;
+        copy.edtCtx = edtCtx;
+        copy.jsonName = jsonName;
+        copy.classConfig = classConfig == null ? null : classConfig.deepCopy();
+        copy.classEditor = classEditor == null ? null : classEditor.copy();
+        return copy;
+    }
+
     @Override
     public void setConfig(JsonElement config) {
         String name = null;
+        cacheClassEditor();
         jsonName = "";
         if (config == null || !config.isJsonObject()) {
             classConfig = null;
         } else {
             JsonObject confObj = config.getAsJsonObject();
-            if (merge) {
-                JsonElement classNameElem = confObj.get(nameField);
-                if (classNameElem != null && classNameElem.isJsonPrimitive()) {
-                    name = classNameElem.getAsString();
-                }
+            name = findClassName(confObj, merge, nameField);
+            classConfig = findClassConfig(confObj, merge);
+        }
+        selectClass(name, false);
+    }
 
-                classConfig = confObj;
-            } else {
-                JsonElement classNameElem = confObj.get(KEY_CLASSNAME);
-                if (classNameElem != null && classNameElem.isJsonPrimitive()) {
-                    name = classNameElem.getAsString();
-                }
+    /**
+     * Find the name of the selected class in the given configuration, the way
+     * setConfig does.
+     *
+     * @param confObj The configuration.
+     * @param merge Flag indicating the class name is merged into the class
+     * configuration.
+     * @param nameField The name of the class name field, if merged.
+     * @return The name of the class, or null if the configuration has none.
+     */
+    public static String findClassName(JsonObject confObj, boolean merge, String nameField) {
+        final JsonElement classNameElem = confObj.get(merge ? nameField : KEY_CLASSNAME);
+        if (classNameElem != null && classNameElem.isJsonPrimitive()) {
+            return classNameElem.getAsString();
+        }
+        return null;
+    }
 
-                classConfig = confObj.get(KEY_CLASSCONFIG);
-            }
+    /**
+     * Find the configuration of the selected class in the given
+     * configuration, the way setConfig does.
+     *
+     * @param confObj The configuration.
+     * @param merge Flag indicating the class name is merged into the class
+     * configuration.
+     * @return The configuration of the class.
+     */
+    public static JsonElement findClassConfig(JsonObject confObj, boolean merge) {
+        if (merge) {
+            return confObj;
         }
-        setJsonName(name);
+        return confObj.get(KEY_CLASSCONFIG);
     }
 
     /**
@@ -372,7 +485,7 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
 
     @Override
     public SchemaItem getJsonSchema(RootSchema rootSchema) {
-        initClasses();
+        final SubclassCatalog classes = initClasses();
         ItemObject myItem = new ItemObject()
                 .setTitle(getLabel())
                 .setDescription(getDescription())
@@ -384,7 +497,7 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
         }
 
         List<SchemaItem> oneOfs = new ArrayList<>();
-        for (Map.Entry<String, classItem> classEntry : classesByJsonName.entrySet()) {
+        for (Map.Entry<String, classItem> classEntry : classes.getClassesByJsonName().entrySet()) {
             final classItem classItem = classEntry.getValue();
             final String itemClassName = classItem.className;
             final String itemJsonName = classItem.jsonName;
@@ -445,127 +558,22 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
     }
 
     public Map<String, classItem> getClassesByClassName() {
-        initClasses();
-        return classesByClassName;
+        return initClasses().getClassesByClassName();
     }
 
     public Map<String, classItem> getClassesByDisplayName() {
-        initClasses();
-        return classesByDisplayName;
+        return initClasses().getClassesByDisplayName();
     }
 
     public Map<String, classItem> getClassesByJsonName() {
-        initClasses();
-        return classesByJsonName;
+        return initClasses().getClassesByJsonName();
     }
 
-    private boolean isAllowed(Class<?> subtype) {
-        if (allowList.isEmpty()) {
-            return true;
-        }
-        for (Class<? extends Annotation> annotation : allowList) {
-            if (subtype.getAnnotation(annotation) != null) {
-                LOGGER.debug("Allowing class {}, annotated with {}.", subtype, annotation);
-                return true;
-            }
+    private SubclassCatalog initClasses() {
+        if (catalog == null) {
+            catalog = SubclassCatalog.getCatalog(iface, requiredAnnotation, allowList, denyList, shortenClassNames);
         }
-        LOGGER.debug("Not Allowing class {}, not annotated with any of the allowList annotations.", subtype);
-        return false;
-    }
-
-    private boolean isDenied(Class<?> subtype) {
-        if (denyList.isEmpty()) {
-            return false;
-        }
-        for (Class<? extends Annotation> annotation : denyList) {
-            if (subtype.getAnnotation(annotation) != null) {
-                LOGGER.debug("Ignoring class {}, annotated with {}.", subtype, annotation);
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private void initClasses() {
-        if (!classesByJsonName.isEmpty()) {
-            return;
-        }
-        List<Class<?>> subtypes = Reflection.getSubtypesOf(iface, false, true);
-        for (Class<?> subtype : subtypes) {
-            if (requiredAnnotation != NoFilter.class && subtype.getAnnotation(requiredAnnotation) == null) {
-                LOGGER.debug("Ignoring class {}, not annotated with {}.", subtype, requiredAnnotation);
-                continue;
-            }
-            if (!isAllowed(subtype)) {
-                continue;
-            }
-            if (isDenied(subtype)) {
-                continue;
-            }
-
-            classItem item = new classItem(subtype.getName());
-            ConfigurableClass annotation = subtype.getAnnotation(ConfigurableClass.class);
-            if (annotation != null) {
-                if (!annotation.jsonName().isEmpty()) {
-                    item.jsonName = annotation.jsonName();
-                    item.displayName = item.jsonName;
-                }
-                if (!annotation.displayName().isEmpty()) {
-                    item.displayName = annotation.displayName();
-                }
-            }
-            if (classesByJsonName.containsKey(item.displayName)) {
-                classItem conflict = classesByJsonName.get(item.displayName);
-                LOGGER.warn("Name conflict, a class with jsonName {} already exists. {} and {}.", item.jsonName, conflict.className, item.jsonName);
-                item.displayName = item.className;
-            }
-            classesByJsonName.put(item.jsonName, item);
-            classesByClassName.put(item.className, item);
-        }
-
-        if (shortenClassNames) {
-            findPrefix();
-        }
-
-        for (classItem item : classesByJsonName.values()) {
-            if (classesByDisplayName.containsKey(item.displayName)) {
-                classItem conflict = classesByDisplayName.get(item.displayName);
-                LOGGER.warn("Name conflict, a class with displayName {} already exists. {} and {}.", item.displayName, conflict.className, item.className);
-                item.displayName = item.className;
-            }
-            classesByDisplayName.put(item.displayName, item);
-        }
-    }
-
-    private void findPrefix() {
-        if (classesByJsonName.isEmpty()) {
-            return;
-        }
-        String prefix = null;
-        for (classItem item : classesByJsonName.values()) {
-            if (prefix == null) {
-                prefix = shortenPrefix(item.displayName);
-                continue;
-            }
-            while (!prefix.isEmpty() && !item.displayName.startsWith(prefix)) {
-                prefix = shortenPrefix(prefix);
-            }
-            if (prefix.isEmpty()) {
-                break;
-            }
-        }
-        LOGGER.debug("Found prefix to be: {}", prefix);
-        for (classItem item : classesByJsonName.values()) {
-            item.displayName = item.displayName.substring(prefix.length());
-        }
-    }
-
-    private String shortenPrefix(String prefix) {
-        int idx = prefix.lastIndexOf('.', prefix.length() - 2);
-        if (idx == -1) {
-            return "";
-        }
-        return prefix.substring(0, idx + 1);
+        return catalog;
     }
 
     private ConfigEditor createClassEditor(final String jsonName, final C context, final D edtCtx) {
@@ -592,9 +600,29 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
         return null;
     }
 
+    /**
+     * Select the class with the given name. If the class was selected before,
+     * its editor is restored, including the changes made in it.
+     *
+     * @param name The jsonName of the class to select.
+     */
     public void setJsonName(final String name) {
+        selectClass(name, true);
+    }
+
+    /**
+     * Select the class with the given name, re-using the editor of that class
+     * if it is still cached.
+     *
+     * @param name The jsonName of the class to select.
+     * @param restore If true, the configuration of a cached editor is used,
+     * otherwise the cached editor is given the current classConfig.
+     */
+    private void selectClass(final String name, final boolean restore) {
         if (Utils.isNullOrEmpty(name)) {
             LOGGER.debug("Empty class name.");
+            cacheClassEditor();
+            jsonName = "";
             instance = null;
             classEditor = null;
             fillComponent();
@@ -603,9 +631,21 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
         if (name.equals(jsonName)) {
             return;
         }
+        cacheClassEditor();
         jsonName = name;
 
         instance = null;
+        classEditor = cachedEditors.remove(jsonName);
+        if (classEditor != null) {
+            if (restore) {
+                classConfig = classEditor.getConfig();
+            } else {
+                classEditor.setConfig(classConfig);
+            }
+            classEditor.setProfile(profile);
+            fillComponent();
+            return;
+        }
         if (!Utils.isNullOrEmpty(jsonName)) {
             final ConfigurableFactory factory = findFactory(context, edtCtx);
             try {
@@ -642,6 +682,12 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
         fillComponent();
     }
 
+    private void cacheClassEditor() {
+        if (classEditor != null && !Utils.isNullOrEmpty(jsonName)) {
+            cachedEditors.put(jsonName, classEditor);
+        }
+    }
+
     public String findClassName(String from) {
         classItem item = findClassItem(from);
         if (item == null) {
@@ -654,23 +700,7 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
         if (Utils.isNullOrEmpty(from)) {
             return null;
         }
-        initClasses();
-        classItem item = classesByJsonName.get(from);
-        if (item != null) {
-            LOGGER.debug("Mapping {} to {}.", from, item.className);
-            return item;
-        }
-        item = classesByDisplayName.get(from);
-        if (item != null) {
-            LOGGER.debug("Mapping {} to {}.", from, item.className);
-            return item;
-        }
-        for (classItem clazz : classesByJsonName.values()) {
-            if (clazz.className.endsWith(from)) {
-                return clazz;
-            }
-        }
-        return null;
+        return initClasses().findClassItem(from);
     }
 
     private void readComponent() {
@@ -686,37 +716,68 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
             // Nothing configured, nothing to return.
             return null;
         }
-        if (instance == null) {
+        if (instance == null || (!isConfigured() && (LazyProxies.isLazy(instance) || SharedInstances.isShareable(instance.getClass())))) {
+            // Shared instances and lazy proxies are never configured again, they are replaced.
             instance = tryToInstantiate();
-        } else if (instance instanceof Configurable) {
+            setConfigured();
+        } else if (instance instanceof Configurable && !isConfigured()) {
             Configurable confInstance = (Configurable) instance;
             confInstance.configure(classConfig, context, edtCtx, classEditor);
+            setConfigured();
         }
         return instance;
     }
 
+    private boolean isConfigured() {
+        return instance == configuredInstance && Utils.jsonHash(classConfig) == configuredHash;
+    }
+
+    private void setConfigured() {
+        configuredInstance = instance;
+        configuredHash = Utils.jsonHash(classConfig);
+    }
+
     @Override
     public T getDefaultValue() throws ConfigurationException {
         return null;
     }
 
     private T tryToInstantiate() throws ConfigurationException {
+        final ConfigurableFactory factory = findFactory(context, edtCtx);
+        final Class<?> subclassClass;
         try {
-            return instantiate();
+            subclassClass = factory.loadClass(jsonName);
         } catch (ReflectiveOperationException | IllegalArgumentException exc) {
             throw new ConfigurationException(exc);
         }
+        if (lazy && LazyProxies.canProxy(subclassClass)) {
+            // The proxy uses the state of this moment, not that of its first use.
+            final String name = jsonName;
+            final JsonElement config = classConfig == null ? null : classConfig.deepCopy();
+            final C ctx = context;
+            final D edt = edtCtx;
+            return LazyProxies.create(subclassClass, () -> tryToInstantiate(factory, subclassClass, name, config, ctx, edt));
+        }
+        return tryToInstantiate(factory, subclassClass, jsonName, classConfig, context, edtCtx);
     }
 
-    private T instantiate() throws ReflectiveOperationException, ConfigurationException, IllegalArgumentException {
-        final ConfigurableFactory factory = findFactory(context, edtCtx);
-        final Class<?> subclassClass = factory.loadClass(jsonName);
+    private T tryToInstantiate(final ConfigurableFactory factory, final Class<?> subclassClass, final String name, final JsonElement config, final C context, final D edtCtx) throws ConfigurationException {
+        return SharedInstances.intern(subclassClass, config, context, edtCtx, () -> {
+            try {
+                return instantiate(factory, subclassClass, name, config, context, edtCtx);
+            } catch (ReflectiveOperationException | IllegalArgumentException exc) {
+                throw new ConfigurationException(exc);
+            }
+        });
+    }
+
+    private T instantiate(final ConfigurableFactory factory, final Class<?> subclassClass, final String name, final JsonElement config, final C context, final D edtCtx) throws ReflectiveOperationException, ConfigurationException, IllegalArgumentException {
         final Optional<Constructor<?>> configurableConstructor = getConfigurableConstructor(subclassClass);
         if (configurableConstructor.isPresent()) {
-            return instantiateFrom(configurableConstructor.get(), classConfig, context, edtCtx);
+            return instantiateFrom(configurableConstructor.get(), config, context, edtCtx);
         }
 
-        return (T) factory.instantiate(jsonName, classConfig, context, edtCtx);
+        return (T) factory.instantiate(name, config, context, edtCtx);
     }
 
     @Override
@@ -823,6 +884,7 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
      */
     public void setRequiredAnnotation(Class<? extends Annotation> requiredAnnotation) {
         this.requiredAnnotation = requiredAnnotation;
+        catalog = null;
     }
 
     /**
@@ -841,6 +903,7 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
      */
     public void setAllowList(List<Class<? extends Annotation>> allowList) {
         this.allowList = allowList;
+        catalog = null;
     }
 
     /**
@@ -861,6 +924,7 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
      */
     public void setDenyList(List<Class<? extends Annotation>> denyList) {
         this.denyList = denyList;
+        catalog = null;
     }
 
     /**
@@ -912,32 +976,22 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
 
     private class FactoryImp implements ConfigurableFactory {
 
-        private Class<? extends T> loadClass() throws ReflectiveOperationException, ConfigurationException {
-            if (Utils.isNullOrEmpty(jsonName)) {
+        private Class<? extends T> loadSelectedClass(String className) throws ReflectiveOperationException, ConfigurationException {
+            if (Utils.isNullOrEmpty(className)) {
                 throw new ConfigurationException("No class specified.");
             }
-            String name = jsonName;
-
-            Class<? extends T> loadedClass = null;
-            ClassLoader cl = getClass().getClassLoader();
-            try {
-                loadedClass = (Class<? extends T>) cl.loadClass(name);
-            } catch (ClassNotFoundException e) {
-                LOGGER.trace("Could not find class {}. Not a full class name?", name);
-                LOGGER.trace("Exception loading class.", e);
-            }
+            return (Class<? extends T>) loadClass(className);
+        }
 
-            if (loadedClass == null) {
-                name = findClassName(name);
-                loadedClass = (Class<? extends T>) cl.loadClass(name);
-            }
-            return loadedClass;
+        @Override
+        public Class<?> loadClass(String from) throws ClassNotFoundException {
+            return initClasses().loadClass(from);
         }
 
         @Override
         public Object instantiate(String className, JsonElement config, Object context, Object edtCtx) throws ConfigurationException {
             try {
-                Class<? extends T> loadedClass = loadClass();
+                Class<? extends T> loadedClass = loadSelectedClass(className);
                 return instantiate(loadedClass, config, context, edtCtx);
             } catch (ReflectiveOperationException | SecurityException exc) {
                 throw new ConfigurationException(exc);
@@ -954,7 +1008,7 @@ public class EditorSubclass<C, D, T> extends EditorDefault<T> {
             }
             if (newInstance instanceof Configurable) {
                 Configurable confInstance = (Configurable) newInstance;
-                confInstance.configure(classConfig, context, edtCtx, null);
+                confInstance.configure(config, context, edtCtx, null);
             }
             return newInstance;
         }
@@ -0,0 +1,525 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.editor;
+
+import de.fraunhofer.iosb.ilt.configurable.ClassMetadata;
+import de.fraunhofer.iosb.ilt.configurable.ConfigurableRegistry.Implementation;
+import de.fraunhofer.iosb.ilt.configurable.ImplementationRegistry;
+import de.fraunhofer.iosb.ilt.configurable.Reflection;
+import de.fraunhofer.iosb.ilt.configurable.Utils;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorSubclass.NoFilter;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorSubclass.classItem;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The filtered list of classes that an EditorSubclass offers. Catalogs are
+ * shared between all EditorSubclass instances with the same settings, and are
+ * computed only once. If implementations are registered for the interface in
+ * the {@link ImplementationRegistry}, only those are offered. Otherwise the
+ * candidate classes are not loaded, their metadata is read from their class
+ * files. The maps and classItems that a catalog returns are copies, so
+ * callers can not change the shared catalog.
+ *
+ * @author Hylke van der Schaaf
+ */
+public final class SubclassCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubclassCatalog.class);
+    /**
+     * The maximum number of names kept in the caches of names that needed the
+     * partial-suffix search, or that could not be loaded.
+     */
+    private static final int MAX_CACHED_NAMES = 256;
+
+    /**
+     * The settings of an EditorSubclass that determine the list of classes.
+     */
+    private static record Key(
+            Class<?> iface,
+            Class<? extends Annotation> requiredAnnotation,
+            List<Class<? extends Annotation>> allowList,
+            List<Class<? extends Annotation>> denyList,
+            boolean shortenClassNames) {
+    }
+
+    /**
+     * The catalogs, stored on the interface so they do not keep the classloader
+     * of the interface alive.
+     */
+    private static final ClassValue<Map<Key, SubclassCatalog>> CATALOGS = new ClassValue<>() {
+        @Override
+        protected Map<Key, SubclassCatalog> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * Incremented by {@link #clearCache()}. Catalogs of an older generation are
+     * replaced when requested.
+     */
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    /**
+     * The catalogs that the current thread is building. Used to detect a
+     * catalog being requested again while it is built, for instance by a
+     * registry provider or a class initializer.
+     */
+    private static final ThreadLocal<Set<Key>> BUILDING = ThreadLocal.withInitial(HashSet::new);
+
+    private final Key key;
+    private final int generation;
+    private final Map<String, classItem> classesByClassName;
+    private final Map<String, classItem> classesByJsonName;
+    private final Map<String, classItem> classesByDisplayName;
+    /**
+     * The classes registered in the ImplementationRegistry, by class name.
+     * Only filled during construction.
+     */
+    private final Map<String, Class<?>> registeredClasses = new HashMap<>();
+    /**
+     * The classes by every suffix of their class name that starts at a package
+     * or nesting boundary, including the simple name and the full name.
+     */
+    private final Map<String, classItem> classesBySuffix = new HashMap<>();
+    /**
+     * The suffixes that match more than one class. These do not resolve to a
+     * class.
+     */
+    private final Set<String> ambiguousSuffixes = new HashSet<>();
+    /**
+     * Names that were resolved by the slow, partial-suffix search, or that
+     * could not be resolved at all (empty). Only the most recent are kept.
+     */
+    private final Map<String, Optional<classItem>> resolvedNames = Collections.synchronizedMap(new BoundedMap<>());
+    /**
+     * Class names that could not be loaded. Only the most recent are kept.
+     */
+    private final Set<String> unloadableNames = Collections.newSetFromMap(Collections.synchronizedMap(new BoundedMap<>()));
+
+    /**
+     * A map that removes the least recently used entry when it grows beyond
+     * {@value #MAX_CACHED_NAMES} entries.
+     */
+    private static class BoundedMap<V> extends LinkedHashMap<String, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        public BoundedMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > MAX_CACHED_NAMES;
+        }
+    }
+
+    private SubclassCatalog(Key key, int generation, boolean findClasses) {
+        this.key = key;
+        this.generation = generation;
+        final Map<String, classItem> byClassName = new HashMap<>();
+        final Map<String, classItem> byJsonName = new HashMap<>();
+        final Map<String, classItem> byDisplayName = new TreeMap<>();
+        if (findClasses) {
+            initClasses(byClassName, byJsonName, byDisplayName);
+        }
+        classesByClassName = Collections.unmodifiableMap(byClassName);
+        classesByJsonName = Collections.unmodifiableMap(byJsonName);
+        classesByDisplayName = Collections.unmodifiableMap(byDisplayName);
+        initSuffixes();
+    }
+
+    /**
+     * Get the (shared) catalog for the given settings.
+     *
+     * @param iface The interface or superclass that the classes must implement
+     * or extend.
+     * @param requiredAnnotation An annotation that the classes must have.
+     * @param allowList If not empty, classes must have one of these
+     * annotations.
+     * @param denyList Classes with one of these annotations are excluded.
+     * @param shortenClassNames Flag indicating common prefixes should be
+     * removed from the display names.
+     * @return The catalog for the given settings.
+     */
+    public static SubclassCatalog getCatalog(
+            Class<?> iface,
+            Class<? extends Annotation> requiredAnnotation,
+            List<Class<? extends Annotation>> allowList,
+            List<Class<? extends Annotation>> denyList,
+            boolean shortenClassNames) {
+        final Key key = new Key(iface, requiredAnnotation, List.copyOf(allowList), List.copyOf(denyList), shortenClassNames);
+        // Read the generation before building, so a catalog that is built while
+        // the cache is cleared is replaced on the next request.
+        final int currentGeneration = GENERATION.get();
+        final Map<Key, SubclassCatalog> catalogs = CATALOGS.get(iface);
+        final SubclassCatalog existing = catalogs.get(key);
+        if (existing != null && existing.generation == currentGeneration) {
+            return existing;
+        }
+        final Set<Key> building = BUILDING.get();
+        if (!building.add(key)) {
+            LOGGER.warn("The list of classes implementing {} was requested while it is being built, returning an empty list.", iface.getName());
+            return new SubclassCatalog(key, currentGeneration, false);
+        }
+        final SubclassCatalog created;
+        try {
+            // Built outside the map, the scan may take long and may request other catalogs.
+            created = new SubclassCatalog(key, currentGeneration, true);
+        } finally {
+            building.remove(key);
+        }
+        // If another thread stored a catalog of the same or a newer generation meanwhile, use that one.
+        return catalogs.merge(key, created, (old, fresh) -> old.generation >= fresh.generation ? old : fresh);
+    }
+
+    /**
+     * Remove all cached catalogs, for instance after new classes became
+     * available.
+     */
+    public static void clearCache() {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Get a copy of the classes, by class name.
+     *
+     * @return A modifiable copy of the classes, by class name.
+     */
+    public Map<String, classItem> getClassesByClassName() {
+        return copyItems(classesByClassName, new HashMap<>());
+    }
+
+    /**
+     * Get a copy of the classes, by json name.
+     *
+     * @return A modifiable copy of the classes, by json name.
+     */
+    public Map<String, classItem> getClassesByJsonName() {
+        return copyItems(classesByJsonName, new HashMap<>());
+    }
+
+    /**
+     * Get a copy of the classes, by display name, sorted.
+     *
+     * @return A modifiable copy of the classes, by display name.
+     */
+    public Map<String, classItem> getClassesByDisplayName() {
+        return copyItems(classesByDisplayName, new TreeMap<>());
+    }
+
+    private static Map<String, classItem> copyItems(Map<String, classItem> source, Map<String, classItem> target) {
+        for (Map.Entry<String, classItem> entry : source.entrySet()) {
+            target.put(entry.getKey(), entry.getValue().copy());
+        }
+        return target;
+    }
+
+    /**
+     * Load the class with the given name. A class in this catalog with exactly
+     * the given class name is used first. Otherwise the name can be the
+     * jsonName, the displayName, or a suffix of the class name of one of the
+     * classes in this catalog. Names that match none of these are loaded as a
+     * full class name, and finally matched against the ends of the class
+     * names in this catalog.
+     *
+     * @param from The name to load the class for.
+     * @return The loaded class.
+     * @throws ClassNotFoundException if no class matches, or the class can
+     * not be loaded.
+     */
+    public Class<?> loadClass(String from) throws ClassNotFoundException {
+        classItem item = classesByClassName.get(from);
+        if (item == null) {
+            item = findIndexedItem(from);
+        }
+        Class<?> result = null;
+        if (item != null) {
+            result = loadItem(item);
+        } else if (ambiguousSuffixes.contains(from)) {
+            LOGGER.warn("Class name {} is ambiguous, it matches more than one class implementing {}.", from, key.iface.getName());
+        } else {
+            result = loadUnknown(from);
+            if (result == null) {
+                item = resolvedNames.computeIfAbsent(from, this::findByPartialSuffix).orElse(null);
+                result = item == null ? null : loadItem(item);
+            }
+        }
+        if (result == null) {
+            throw new ClassNotFoundException(from);
+        }
+        return result;
+    }
+
+    private Class<?> loadItem(classItem item) {
+        final Class<?> registeredClass = registeredClasses.get(item.className);
+        if (registeredClass != null) {
+            return registeredClass;
+        }
+        try {
+            return getClassLoader().loadClass(item.className);
+        } catch (ClassNotFoundException | LinkageError exc) {
+            LOGGER.warn("Could not load class {}: {}", item.className, exc.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Load a class that is not in this catalog, by its full name.
+     *
+     * @param name The full name of the class.
+     * @return The class, or null if it could not be loaded.
+     */
+    private Class<?> loadUnknown(String name) {
+        if (unloadableNames.contains(name)) {
+            return null;
+        }
+        try {
+            return getClassLoader().loadClass(name);
+        } catch (ClassNotFoundException exc) {
+            LOGGER.trace("Could not find class {}. Not a full class name?", name);
+            unloadableNames.add(name);
+            return null;
+        }
+    }
+
+    private static ClassLoader getClassLoader() {
+        return SubclassCatalog.class.getClassLoader();
+    }
+
+    /**
+     * Find the class for the given name. The name can be the jsonName, the
+     * displayName, or the class name of the class, or a suffix of the class
+     * name. A suffix that matches more than one class does not match.
+     *
+     * @param from The name to find the class for.
+     * @return A copy of the class item for the given name, or null if no class
+     * matches.
+     */
+    public classItem findClassItem(String from) {
+        final classItem item = findItem(from);
+        return item == null ? null : item.copy();
+    }
+
+    private classItem findItem(String from) {
+        final classItem item = findIndexedItem(from);
+        if (item != null) {
+            return item;
+        }
+        if (ambiguousSuffixes.contains(from)) {
+            LOGGER.warn("Class name {} is ambiguous, it matches more than one class implementing {}.", from, key.iface.getName());
+            return null;
+        }
+        return resolvedNames.computeIfAbsent(from, this::findByPartialSuffix).orElse(null);
+    }
+
+    /**
+     * Find the class with the given jsonName, displayName or class name
+     * suffix, using only the maps of this catalog.
+     *
+     * @param from The name to find the class for.
+     * @return The class item for the given name, or null if no class matches.
+     */
+    private classItem findIndexedItem(String from) {
+        classItem item = classesByJsonName.get(from);
+        if (item == null) {
+            item = classesByDisplayName.get(from);
+        }
+        if (item == null) {
+            item = classesBySuffix.get(from);
+        }
+        if (item != null) {
+            LOGGER.debug("Mapping {} to {}.", from, item.className);
+        }
+        return item;
+    }
+
+    private Optional<classItem> findByPartialSuffix(String from) {
+        classItem found = null;
+        for (classItem clazz : classesByJsonName.values()) {
+            if (!clazz.className.endsWith(from)) {
+                continue;
+            }
+            if (found != null) {
+                LOGGER.warn("Class name {} is ambiguous, it matches {} and {}.", from, found.className, clazz.className);
+                return Optional.empty();
+            }
+            found = clazz;
+        }
+        return Optional.ofNullable(found);
+    }
+
+    private void initSuffixes() {
+        for (classItem item : classesByClassName.values()) {
+            final String className = item.className;
+            addSuffix(className, item);
+            for (int i = 0; i < className.length(); i++) {
+                final char c = className.charAt(i);
+                if (c == '.' || c == '$') {
+                    addSuffix(className.substring(i + 1), item);
+                }
+            }
+        }
+        for (String suffix : ambiguousSuffixes) {
+            classesBySuffix.remove(suffix);
+        }
+        if (!ambiguousSuffixes.isEmpty()) {
+            LOGGER.debug("Ambiguous class name suffixes: {}", ambiguousSuffixes);
+        }
+    }
+
+    private void addSuffix(String suffix, classItem item) {
+        final classItem existing = classesBySuffix.putIfAbsent(suffix, item);
+        if (existing != null && existing != item) {
+            ambiguousSuffixes.add(suffix);
+        }
+    }
+
+    private boolean isAllowed(ClassMetadata subtype) {
+        if (key.allowList.isEmpty()) {
+            return true;
+        }
+        for (Class<? extends Annotation> annotation : key.allowList) {
+            if (subtype.hasAnnotation(annotation)) {
+                LOGGER.debug("Allowing class {}, annotated with {}.", subtype, annotation);
+                return true;
+            }
+        }
+        LOGGER.debug("Not Allowing class {}, not annotated with any of the allowList annotations.", subtype);
+        return false;
+    }
+
+    private boolean isDenied(ClassMetadata subtype) {
+        if (key.denyList.isEmpty()) {
+            return false;
+        }
+        for (Class<? extends Annotation> annotation : key.denyList) {
+            if (subtype.hasAnnotation(annotation)) {
+                LOGGER.debug("Ignoring class {}, annotated with {}.", subtype, annotation);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<ClassMetadata> findCandidates() {
+        if (!ImplementationRegistry.hasImplementations(key.iface)) {
+            return Reflection.getSubtypeMetadataOf(key.iface, false, true);
+        }
+        final List<ClassMetadata> candidates = new ArrayList<>();
+        for (Implementation implementation : ImplementationRegistry.getImplementations(key.iface)) {
+            final ClassMetadata metadata = ClassMetadata.fromClass(implementation.implementation());
+            if (metadata.isConcrete()) {
+                candidates.add(metadata.withNames(implementation.jsonName(), implementation.displayName()));
+                registeredClasses.put(metadata.getClassName(), implementation.implementation());
+            }
+        }
+        return candidates;
+    }
+
+    private void initClasses(Map<String, classItem> byClassName, Map<String, classItem> byJsonName, Map<String, classItem> byDisplayName) {
+        final Class<? extends Annotation> requiredAnnotation = key.requiredAnnotation;
+        List<ClassMetadata> subtypes = findCandidates();
+        for (ClassMetadata subtype : subtypes) {
+            if (requiredAnnotation != NoFilter.class && !subtype.hasAnnotation(requiredAnnotation)) {
+                LOGGER.debug("Ignoring class {}, not annotated with {}.", subtype, requiredAnnotation);
+                continue;
+            }
+            if (!isAllowed(subtype)) {
+                continue;
+            }
+            if (isDenied(subtype)) {
+                continue;
+            }
+
+            classItem item = new classItem(subtype.getClassName());
+            if (!Utils.isNullOrEmpty(subtype.getJsonName())) {
+                item.jsonName = subtype.getJsonName();
+                item.displayName = item.jsonName;
+            }
+            if (!Utils.isNullOrEmpty(subtype.getDisplayName())) {
+                item.displayName = subtype.getDisplayName();
+            }
+            if (byJsonName.containsKey(item.displayName)) {
+                classItem conflict = byJsonName.get(item.displayName);
+                LOGGER.warn("Name conflict, a class with jsonName {} already exists. {} and {}.", item.jsonName, conflict.className, item.jsonName);
+                item.displayName = item.className;
+            }
+            byJsonName.put(item.jsonName, item);
+            byClassName.put(item.className, item);
+        }
+
+        if (key.shortenClassNames) {
+            findPrefix(byJsonName);
+        }
+
+        for (classItem item : byJsonName.values()) {
+            if (byDisplayName.containsKey(item.displayName)) {
+                classItem conflict = byDisplayName.get(item.displayName);
+                LOGGER.warn("Name conflict, a class with displayName {} already exists. {} and {}.", item.displayName, conflict.className, item.className);
+                item.displayName = item.className;
+            }
+            byDisplayName.put(item.displayName, item);
+        }
+    }
+
+    private static void findPrefix(Map<String, classItem> byJsonName) {
+        if (byJsonName.isEmpty()) {
+            return;
+        }
+        String prefix = null;
+        for (classItem item : byJsonName.values()) {
+            if (prefix == null) {
+                prefix = shortenPrefix(item.displayName);
+                continue;
+            }
+            while (!prefix.isEmpty() && !item.displayName.startsWith(prefix)) {
+                prefix = shortenPrefix(prefix);
+            }
+            if (prefix.isEmpty()) {
+                break;
+            }
+        }
+        LOGGER.debug("Found prefix to be: {}", prefix);
+        for (classItem item : byJsonName.values()) {
+            item.displayName = item.displayName.substring(prefix.length());
+        }
+    }
+
+    private static String shortenPrefix(String prefix) {
+        int idx = prefix.lastIndexOf('.', prefix.length() - 2);
+        if (idx == -1) {
+            return "";
+        }
+        return prefix.substring(0, idx + 1);
+    }
+}
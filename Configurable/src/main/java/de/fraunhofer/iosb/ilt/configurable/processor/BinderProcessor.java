@@ -0,0 +1,558 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.processor;
+
+import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableBinder;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor that generates a {@link ConfigurableBinder} for each
+ * concrete class with ConfigurableField annotations. The generated binder
+ * builds the editor of the class with direct constructor calls, and copies
+ * the configured values into the class with plain setter calls and field
+ * assignments, where the setter or field is accessible from the package of
+ * the class. Other values are written through the pre-resolved writers of
+ * the ClassBindingPlan.
+ * <p>
+ * The processor is not registered as a service, it only runs when it is
+ * explicitly listed in the annotation processors of the compiler.
+ *
+ * @author Hylke van der Schaaf
+ */
+@SupportedAnnotationTypes("*")
+public class BinderProcessor extends AbstractProcessor {
+
+    private static final String CONFIGURABLE_FIELD_NAME = "de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableField";
+    private static final String CONFIGURABLE_CONSTRUCTOR_NAME = "de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableConstructor";
+    private static final String CONFIGURABLE_PARAMETER_NAME = "de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableParameter";
+
+    /**
+     * How the value of a field is copied into the target.
+     */
+    private enum WriteMode {
+        /**
+         * The field is passed to the constructor, it is not written.
+         */
+        SKIP,
+        /**
+         * The single public setter is called directly.
+         */
+        SETTER,
+        /**
+         * The field is assigned directly.
+         */
+        FIELD,
+        /**
+         * The value is written through the ClassBindingPlan.
+         */
+        PLAN
+    }
+
+    /**
+     * An annotated field, with everything needed to generate its code.
+     */
+    private static final class BoundField {
+
+        private final TypeElement declaringType;
+        private final VariableElement field;
+        private final TypeElement editorType;
+        private final String label;
+        private final String description;
+        private final String jsonName;
+        private boolean directEditor;
+        private boolean editorContexts;
+        private WriteMode writeMode;
+        private String setterName;
+        private TypeMirror valueType;
+
+        private BoundField(TypeElement declaringType, VariableElement field, TypeElement editorType, String label, String description, String jsonName) {
+            this.declaringType = declaringType;
+            this.field = field;
+            this.editorType = editorType;
+            this.label = label;
+            this.description = description;
+            this.jsonName = jsonName;
+        }
+
+        private String getFieldName() {
+            return field.getSimpleName().toString();
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!roundEnv.processingOver()) {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+                processType(type);
+            }
+        }
+        // Never claim annotations, other processors may want them too.
+        return false;
+    }
+
+    private void processType(TypeElement type) {
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            processType(nested);
+        }
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT) || !isReachable(type)) {
+            return;
+        }
+        final List<BoundField> fields = findFields(type);
+        if (fields == null || fields.isEmpty()) {
+            return;
+        }
+        final Set<String> constructorFields = findConstructorFields(type);
+        for (BoundField boundField : fields) {
+            resolveEditor(boundField);
+            resolveWriteMode(type, boundField, constructorFields);
+        }
+        writeBinder(type, fields);
+    }
+
+    /**
+     * Checks if the type can be referenced from other classes in its package.
+     */
+    private static boolean isReachable(TypeElement type) {
+        final Element enclosing = type.getEnclosingElement();
+        if (type.getNestingKind() == NestingKind.TOP_LEVEL) {
+            return true;
+        }
+        if (type.getNestingKind() != NestingKind.MEMBER
+                || type.getModifiers().contains(Modifier.PRIVATE)
+                || !type.getModifiers().contains(Modifier.STATIC) && type.getKind() == ElementKind.CLASS) {
+            return false;
+        }
+        return enclosing instanceof TypeElement enclosingType && isReachable(enclosingType);
+    }
+
+    /**
+     * Checks if the type can be referenced from any package.
+     */
+    private static boolean isPublic(TypeElement type) {
+        if (!type.getModifiers().contains(Modifier.PUBLIC)) {
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.TOP_LEVEL) {
+            return true;
+        }
+        return type.getNestingKind() == NestingKind.MEMBER
+                && (type.getModifiers().contains(Modifier.STATIC) || type.getKind() != ElementKind.CLASS)
+                && type.getEnclosingElement() instanceof TypeElement enclosingType
+                && isPublic(enclosingType);
+    }
+
+    /**
+     * Finds the annotated fields of the type and its superclasses, in the
+     * order used by the ClassBindingPlan.
+     *
+     * @return The annotated fields, or null if the annotations can not be
+     * read.
+     */
+    private List<BoundField> findFields(TypeElement type) {
+        final Elements elements = processingEnv.getElementUtils();
+        final List<BoundField> result = new ArrayList<>();
+        TypeElement current = type;
+        while (current != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                final AnnotationMirror mirror = findAnnotation(field, CONFIGURABLE_FIELD_NAME);
+                if (mirror == null) {
+                    continue;
+                }
+                TypeElement editorType = null;
+                String label = "";
+                String description = "";
+                String jsonName = "";
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+                    final String name = entry.getKey().getSimpleName().toString();
+                    final Object value = entry.getValue().getValue();
+                    switch (name) {
+                        case "editor" -> {
+                            if (value instanceof DeclaredType declaredType && declaredType.getKind() == TypeKind.DECLARED) {
+                                editorType = (TypeElement) declaredType.asElement();
+                            }
+                        }
+                        case "label" ->
+                            label = String.valueOf(value);
+                        case "description" ->
+                            description = String.valueOf(value);
+                        case "jsonField" ->
+                            jsonName = String.valueOf(value);
+                        default -> {
+                            // Not needed in the binder.
+                        }
+                    }
+                }
+                if (editorType == null) {
+                    return null;
+                }
+                if (jsonName.isEmpty()) {
+                    jsonName = field.getSimpleName().toString();
+                }
+                result.add(new BoundField(current, field, editorType, label, description, jsonName));
+            }
+            final TypeMirror superclass = current.getSuperclass();
+            if (superclass.getKind() != TypeKind.DECLARED) {
+                break;
+            }
+            current = (TypeElement) ((DeclaredType) superclass).asElement();
+        }
+        return result;
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationName.equals(annotationType.getQualifiedName().toString())) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the jsonFields of the parameters of the public
+     * ConfigurableConstructor. These fields are not written after
+     * construction.
+     */
+    private Set<String> findConstructorFields(TypeElement type) {
+        final Set<String> result = new HashSet<>();
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC) || findAnnotation(constructor, CONFIGURABLE_CONSTRUCTOR_NAME) == null) {
+                continue;
+            }
+            for (VariableElement parameter : constructor.getParameters()) {
+                final AnnotationMirror mirror = findAnnotation(parameter, CONFIGURABLE_PARAMETER_NAME);
+                if (mirror == null) {
+                    continue;
+                }
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+                    if ("jsonField".equals(entry.getKey().getSimpleName().toString())) {
+                        result.add(String.valueOf(entry.getValue().getValue()));
+                    }
+                }
+            }
+            break;
+        }
+        return result;
+    }
+
+    /**
+     * Decides if the editor can be instantiated directly: it must be a public
+     * class with a public no-argument constructor, and it must either have no
+     * public setContexts method, or a single one that takes two Objects.
+     */
+    private void resolveEditor(BoundField boundField) {
+        final TypeElement editorType = boundField.editorType;
+        if (editorType.getKind() != ElementKind.CLASS || editorType.getModifiers().contains(Modifier.ABSTRACT) || !isPublic(editorType)) {
+            return;
+        }
+        boolean hasConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(editorType.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                hasConstructor = true;
+            }
+        }
+        if (!hasConstructor) {
+            return;
+        }
+        final Types types = processingEnv.getTypeUtils();
+        final TypeMirror objectType = processingEnv.getElementUtils().getTypeElement(Object.class.getName()).asType();
+        final List<ExecutableElement> contextSetters = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(editorType))) {
+            if ("setContexts".equals(method.getSimpleName().toString())
+                    && method.getParameters().size() == 2
+                    && method.getModifiers().contains(Modifier.PUBLIC)) {
+                contextSetters.add(method);
+            }
+        }
+        if (contextSetters.size() > 1) {
+            return;
+        }
+        if (contextSetters.size() == 1) {
+            for (VariableElement parameter : contextSetters.get(0).getParameters()) {
+                if (!types.isSameType(types.erasure(parameter.asType()), objectType)) {
+                    return;
+                }
+            }
+            boundField.editorContexts = true;
+        }
+        boundField.directEditor = true;
+    }
+
+    /**
+     * Decides how the value is written, following the rules of the
+     * ClassBindingPlan: a public setter is preferred over the field. Setters
+     * and fields are only used directly when that is unambiguous, and they
+     * are accessible from the package of the target.
+     */
+    private void resolveWriteMode(TypeElement type, BoundField boundField, Set<String> constructorFields) {
+        final String fieldName = boundField.getFieldName();
+        if (constructorFields.contains(fieldName)) {
+            boundField.writeMode = WriteMode.SKIP;
+            return;
+        }
+        boundField.writeMode = WriteMode.PLAN;
+        final Elements elements = processingEnv.getElementUtils();
+        final PackageElement targetPackage = elements.getPackageOf(type);
+        final List<? extends Element> members = elements.getAllMembers(type);
+
+        final String setterName = "set" + fieldName.substring(0, 1).toUpperCase(Locale.ROOT) + fieldName.substring(1);
+        final List<ExecutableElement> setters = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+            if (setterName.equals(method.getSimpleName().toString())
+                    && method.getParameters().size() == 1
+                    && method.getModifiers().contains(Modifier.PUBLIC)) {
+                setters.add(method);
+            }
+        }
+        if (setters.size() > 1) {
+            return;
+        }
+        if (setters.size() == 1) {
+            final ExecutableElement setter = setters.get(0);
+            final TypeElement setterOwner = (TypeElement) setter.getEnclosingElement();
+            final boolean ownerAccessible = isPublic(setterOwner) || elements.getPackageOf(setterOwner).equals(targetPackage);
+            final TypeMirror parameterType = setter.getParameters().get(0).asType();
+            if (!setter.getModifiers().contains(Modifier.STATIC) && ownerAccessible && isAccessible(parameterType, targetPackage)) {
+                boundField.writeMode = WriteMode.SETTER;
+                boundField.setterName = setterName;
+                boundField.valueType = parameterType;
+            }
+            return;
+        }
+
+        final VariableElement field = boundField.field;
+        final Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+            return;
+        }
+        final boolean samePackage = elements.getPackageOf(boundField.declaringType).equals(targetPackage);
+        if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+            return;
+        }
+        // The field must be the only member with its name, or the assignment could resolve to another field.
+        for (VariableElement member : ElementFilter.fieldsIn(members)) {
+            if (member.getSimpleName().contentEquals(fieldName) && !member.equals(field)) {
+                return;
+            }
+        }
+        if (!members.contains(field) || !isAccessible(field.asType(), targetPackage)) {
+            return;
+        }
+        boundField.writeMode = WriteMode.FIELD;
+        boundField.valueType = field.asType();
+    }
+
+    private boolean isAccessible(TypeMirror type, PackageElement fromPackage) {
+        final TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if (erased.getKind().isPrimitive()) {
+            return true;
+        }
+        if (erased instanceof ArrayType arrayType) {
+            return isAccessible(arrayType.getComponentType(), fromPackage);
+        }
+        if (erased.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        final TypeElement element = (TypeElement) ((DeclaredType) erased).asElement();
+        return isPublic(element)
+                || !element.getModifiers().contains(Modifier.PRIVATE)
+                && isReachable(element)
+                && processingEnv.getElementUtils().getPackageOf(element).equals(fromPackage);
+    }
+
+    /**
+     * The name of the (reference) type to check values against, before they
+     * are passed to a setter or assigned to a field of the given type.
+     */
+    private String checkedTypeName(TypeMirror type) {
+        final Types types = processingEnv.getTypeUtils();
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return types.erasure(type).toString();
+    }
+
+    private String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value).toString();
+    }
+
+    private void writeBinder(TypeElement type, List<BoundField> fields) {
+        final Elements elements = processingEnv.getElementUtils();
+        final String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        final String binaryName = elements.getBinaryName(type).toString();
+        final String binderName = binaryName + ConfigurableBinder.CLASS_NAME_SUFFIX;
+        final String simpleName = packageName.isEmpty() ? binderName : binderName.substring(packageName.length() + 1);
+        final String typeName = type.getQualifiedName().toString();
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(binderName, type);
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                if (!packageName.isEmpty()) {
+                    out.println("package " + packageName + ";");
+                    out.println();
+                }
+                out.println("import de.fraunhofer.iosb.ilt.configurable.ConfigEditor;");
+                out.println("import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;");
+                out.println("import de.fraunhofer.iosb.ilt.configurable.annotations.AbstractConfigurableBinder;");
+                out.println("import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.FieldPlan;");
+                out.println("import de.fraunhofer.iosb.ilt.configurable.annotations.ClassBindingPlan.PropertyWriter;");
+                out.println("import de.fraunhofer.iosb.ilt.configurable.editor.AbstractEditorMap;");
+                out.println("import de.fraunhofer.iosb.ilt.configurable.editor.EditorMap;");
+                out.println("import javax.annotation.processing.Generated;");
+                out.println();
+                out.println("/**");
+                out.println(" * Generated binder for {@link " + typeName + "}.");
+                out.println(" */");
+                out.println("@Generated(\"" + BinderProcessor.class.getName() + "\")");
+                out.println("@SuppressWarnings({\"rawtypes\", \"unchecked\"})");
+                out.println("public final class " + simpleName + " extends AbstractConfigurableBinder<" + typeName + "> {");
+                out.println();
+                for (int i = 0; i < fields.size(); i++) {
+                    out.println("    private final FieldPlan field" + i + ";");
+                    if (fields.get(i).writeMode != WriteMode.SKIP) {
+                        out.println("    private final PropertyWriter writer" + i + ";");
+                    }
+                }
+                out.println();
+                out.println("    public " + simpleName + "() {");
+                out.println("        super(" + typeName + ".class);");
+                for (int i = 0; i < fields.size(); i++) {
+                    final BoundField boundField = fields.get(i);
+                    final String declaringName = elements.getBinaryName(boundField.declaringType).toString();
+                    out.println("        field" + i + " = getFieldPlan(" + literal(declaringName) + ", " + literal(boundField.getFieldName()) + ");");
+                    if (boundField.writeMode != WriteMode.SKIP) {
+                        out.println("        writer" + i + " = getPlan().getWriter(" + literal(boundField.getFieldName()) + ");");
+                    }
+                }
+                out.println("    }");
+                out.println();
+                writeCreateEditor(out, fields);
+                out.println();
+                writeSetContentsOn(out, typeName, fields);
+                out.println("}");
+            }
+        } catch (IOException exc) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write binder: " + exc.getMessage(), type);
+        }
+    }
+
+    private void writeCreateEditor(PrintWriter out, List<BoundField> fields) {
+        out.println("    @Override");
+        out.println("    public <C, D> EditorMap<?> createEditor(C context, D edtCtx) {");
+        out.println("        final EditorMap<?> map = newEditorMap();");
+        for (int i = 0; i < fields.size(); i++) {
+            final BoundField boundField = fields.get(i);
+            final String editor = "editor" + i;
+            final String field = "field" + i;
+            if (boundField.directEditor) {
+                final String editorName = boundField.editorType.getQualifiedName().toString();
+                out.println("        final " + editorName + " " + editor + " = new " + editorName + "();");
+                if (boundField.editorContexts) {
+                    out.println("        " + editor + ".setContexts(context, edtCtx);");
+                }
+                out.println("        " + editor + ".initFor(" + field + ".getField());");
+                writeAddOption(out, "        ", editor, field, boundField);
+            } else {
+                out.println("        final ConfigEditor " + editor + " = createEditor(" + field + ", context, edtCtx);");
+                out.println("        if (" + editor + " != null) {");
+                writeAddOption(out, "            ", editor, field, boundField);
+                out.println("        }");
+            }
+        }
+        out.println("        map.setBinder(this);");
+        out.println("        return map;");
+        out.println("    }");
+    }
+
+    private void writeAddOption(PrintWriter out, String indent, String editor, String field, BoundField boundField) {
+        out.println(indent + editor + ".setLabel(" + literal(boundField.label) + ");");
+        out.println(indent + editor + ".setDescription(" + literal(boundField.description) + ");");
+        out.println(indent + "map.addOption(" + field + ", " + editor + ");");
+    }
+
+    private void writeSetContentsOn(PrintWriter out, String typeName, List<BoundField> fields) {
+        out.println("    @Override");
+        out.println("    public void setContentsOn(AbstractEditorMap<?, ?> editor, " + typeName + " target) throws ConfigurationException {");
+        for (int i = 0; i < fields.size(); i++) {
+            final BoundField boundField = fields.get(i);
+            if (boundField.writeMode == WriteMode.SKIP) {
+                continue;
+            }
+            final String value = "value" + i;
+            final String writer = "writer" + i;
+            out.println("        final Object " + value + " = editor.getValueOrDefault(" + literal(boundField.jsonName) + ");");
+            if (boundField.writeMode == WriteMode.PLAN) {
+                out.println("        if (" + value + " != null) {");
+                out.println("            write(target, " + writer + ", " + value + ");");
+                out.println("        }");
+                continue;
+            }
+            final String checkedType = checkedTypeName(boundField.valueType);
+            out.println("        if (" + value + " instanceof " + checkedType + ") {");
+            if (boundField.writeMode == WriteMode.SETTER) {
+                out.println("            try {");
+                out.println("                target." + boundField.setterName + "((" + checkedType + ") " + value + ");");
+                out.println("            } catch (RuntimeException exc) {");
+                out.println("                setterFailed(target, " + writer + ", " + value + ", exc);");
+                out.println("            }");
+            } else {
+                out.println("            target." + boundField.getFieldName() + " = (" + checkedType + ") " + value + ";");
+            }
+            out.println("        } else if (" + value + " != null) {");
+            out.println("            write(target, " + writer + ", " + value + ");");
+            out.println("        }");
+        }
+        out.println("    }");
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurable.processor;
+
+import de.fraunhofer.iosb.ilt.configurable.SubtypeIndex;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor that writes an index of all compiled types, by the
+ * classes and interfaces they extend or implement, and of the
+ * ConfigurableClass metadata of these types. The index is read by
+ * {@link SubtypeIndex}, so that no classpath scan is needed to find the
+ * implementations of an interface.
+ * <p>
+ * The processor is not registered as a service, it only runs when it is
+ * explicitly listed in the annotation processors of the compiler.
+ *
+ * @author Hylke van der Schaaf
+ */
+@SupportedAnnotationTypes("*")
+public class SubtypeIndexProcessor extends AbstractProcessor {
+
+    private static final String OBJECT_CLASS_NAME = Object.class.getName();
+    private static final String CONFIGURABLE_CLASS_NAME = "de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableClass";
+
+    /**
+     * The subtypes, by the supertype they extend or implement.
+     */
+    private final Map<String, Set<String>> subtypes = new TreeMap<>();
+    /**
+     * The jsonName and displayName of classes with a ConfigurableClass
+     * annotation.
+     */
+    private final Map<String, String[]> configurableClasses = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        } else {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+                indexType(type);
+            }
+        }
+        // Never claim annotations, other processors may want them too.
+        return false;
+    }
+
+    private void indexType(TypeElement type) {
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        addSupertypes(binaryName, type, new TreeSet<>());
+        readConfigurableClass(binaryName, type);
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            indexType(nested);
+        }
+    }
+
+    private void addSupertypes(String binaryName, TypeElement type, Set<String> seen) {
+        addSupertype(binaryName, type.getSuperclass(), seen);
+        for (TypeMirror iface : type.getInterfaces()) {
+            addSupertype(binaryName, iface, seen);
+        }
+    }
+
+    private void addSupertype(String binaryName, TypeMirror superMirror, Set<String> seen) {
+        if (superMirror.getKind() != TypeKind.DECLARED) {
+            return;
+        }
+        final TypeElement superType = (TypeElement) ((DeclaredType) superMirror).asElement();
+        final String superName = processingEnv.getElementUtils().getBinaryName(superType).toString();
+        if (OBJECT_CLASS_NAME.equals(superName) || !seen.add(superName)) {
+            return;
+        }
+        subtypes.computeIfAbsent(superName, k -> new TreeSet<>()).add(binaryName);
+        addSupertypes(binaryName, superType, seen);
+    }
+
+    private void readConfigurableClass(String binaryName, TypeElement type) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            final Element annotationType = mirror.getAnnotationType().asElement();
+            if (!CONFIGURABLE_CLASS_NAME.equals(((TypeElement) annotationType).getQualifiedName().toString())) {
+                continue;
+            }
+            String jsonName = "";
+            String displayName = "";
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                final String name = entry.getKey().getSimpleName().toString();
+                final Object value = entry.getValue().getValue();
+                if ("jsonName".equals(name)) {
+                    jsonName = String.valueOf(value);
+                } else if ("displayName".equals(name)) {
+                    displayName = String.valueOf(value);
+                }
+            }
+            if (!SubtypeIndex.isValidIndexValue(jsonName) || !SubtypeIndex.isValidIndexValue(displayName)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "ConfigurableClass names may not contain tabs or line breaks, not indexing names.", type);
+                return;
+            }
+            configurableClasses.put(binaryName, new String[]{jsonName, displayName});
+        }
+    }
+
+    private void writeIndex() {
+        if (subtypes.isEmpty() && configurableClasses.isEmpty()) {
+            return;
+        }
+        final Filer filer = processingEnv.getFiler();
+        try {
+            readExisting(filer, SubtypeIndex.SUBTYPES_RESOURCE, 2, parts -> subtypes.computeIfAbsent(parts[0], k -> new TreeSet<>()).add(parts[1]));
+            readExisting(filer, SubtypeIndex.CLASSES_RESOURCE, 3, parts -> configurableClasses.putIfAbsent(parts[0], new String[]{parts[1], parts[2]}));
+
+            final FileObject subtypesFile = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SubtypeIndex.SUBTYPES_RESOURCE);
+            try (Writer writer = subtypesFile.openWriter()) {
+                for (Map.Entry<String, Set<String>> entry : subtypes.entrySet()) {
+                    for (String subtype : entry.getValue()) {
+                        writer.write(entry.getKey() + '\t' + subtype + '\n');
+                    }
+                }
+            }
+            final FileObject classesFile = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SubtypeIndex.CLASSES_RESOURCE);
+            try (Writer writer = classesFile.openWriter()) {
+                for (Map.Entry<String, String[]> entry : configurableClasses.entrySet()) {
+                    final String[] names = entry.getValue();
+                    writer.write(entry.getKey() + '\t' + names[0] + '\t' + names[1] + '\n');
+                }
+            }
+        } catch (IOException exc) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write subtype index: " + exc.getMessage());
+        }
+    }
+
+    /**
+     * Reads an index file left by an earlier (incremental) compilation, so that
+     * types that are not recompiled are not dropped from the index.
+     */
+    private void readExisting(Filer filer, String resource, int columns, Consumer<String[]> lineHandler) {
+        try {
+            final FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", resource);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String[] parts = SubtypeIndex.splitLine(line, columns);
+                    if (parts != null) {
+                        lineHandler.accept(parts);
+                    }
+                }
+            }
+        } catch (IOException exc) {
+            // No index from an earlier compilation.
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2024 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.configurableexample;
+
+import com.google.gson.JsonParser;
+import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
+import de.fraunhofer.iosb.ilt.configurable.annotations.AnnotationHelper;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableBinder;
+import de.fraunhofer.iosb.ilt.configurable.annotations.ConfigurableBinders;
+import de.fraunhofer.iosb.ilt.configurable.annotations.RuntimeBinders;
+import de.fraunhofer.iosb.ilt.configurable.editor.EditorMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the time it takes to copy the values of an editor into an object,
+ * using reflection, a binder generated at runtime, and the binder generated
+ * by the annotation processor. The number of iterations can be given as the
+ * first argument.
+ *
+ * @author Hylke van der Schaaf
+ */
+public class BinderBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinderBenchmark.class);
+
+    private static final String CONFIG = "{\"width\":5,\"height\":7,\"cloth\":false,\"textNull\":\"set\","
+            + "\"boolNull\":true,\"intNonNull\":3,\"longNull\":4,\"doubleNonNull\":1.5,\"bdNull\":2.5}";
+    private static final int ROUNDS = 5;
+
+    /**
+     * Copies the values of the editor into the target.
+     */
+    private interface Copier {
+
+        public void copy(FlagShapeList target) throws ConfigurationException;
+    }
+
+    private BinderBenchmark() {
+        // Only has a main method.
+    }
+
+    private static void run(String name, int iterations, Copier copier) throws ConfigurationException {
+        final FlagShapeList target = new FlagShapeList();
+        long duration = 0;
+        // The earlier rounds are warm-up for the JIT, only the last round is reported.
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                copier.copy(target);
+            }
+            duration = System.nanoTime() - start;
+        }
+        LOGGER.info("{}: {} ns per copy.", String.format("%-16s", name), String.format("%8.1f", (double) duration / iterations));
+    }
+
+    public static void main(String[] args) throws ConfigurationException {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        final EditorMap<?> editor = AnnotationHelper.generateEditorFromAnnotations(FlagShapeList.class, null, null).get();
+        editor.setConfig(JsonParser.parseString(CONFIG));
+
+        // The editor was not created by a binder, so setContentsOn uses reflection.
+        run("reflection", iterations, editor::setContentsOn);
+
+        final ConfigurableBinder<FlagShapeList> runtimeBinder = RuntimeBinders.getBinder(FlagShapeList.class);
+        if (runtimeBinder == null) {
+            LOGGER.warn("No runtime binder could be generated.");
+        } else {
+            run("runtime binder", iterations, target -> runtimeBinder.setContentsOn(editor, target));
+        }
+
+        final ConfigurableBinder<FlagShapeList> compiledBinder = ConfigurableBinders.getBinder(FlagShapeList.class);
+        if (compiledBinder == null) {
+            LOGGER.warn("No compiled binder found, was the annotation processor disabled?");
+        } else {
+            run("compiled binder", iterations, target -> compiledBinder.setContentsOn(editor, target));
+        }
+    }
+}
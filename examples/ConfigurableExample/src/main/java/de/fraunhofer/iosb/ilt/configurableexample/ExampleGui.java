@@ -26,6 +26,7 @@ import de.fraunhofer.iosb.ilt.configurable.ConfigurationException;
 import de.fraunhofer.iosb.ilt.configurable.Reflection;
 import java.awt.GridBagConstraints;
 import java.awt.event.ActionEvent;
+import java.util.concurrent.ForkJoinPool;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
@@ -171,10 +172,8 @@ public class ExampleGui extends javax.swing.JFrame {
             exampleGui.setVisible(true);
             exampleGui.setSize(400, 300);
         });
-        // Do classpath scanning in the background.
-        new Thread(() -> {
-            Reflection.getReflections();
-        }).start();
+        // Do class discovery in the background.
+        Reflection.warmUpAsync(ForkJoinPool.commonPool());
     }
 
 }